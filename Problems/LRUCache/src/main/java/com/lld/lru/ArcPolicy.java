@@ -0,0 +1,141 @@
+package com.lld.lru;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// --- ARC: Adaptive Replacement Cache (Megiddo & Modha) ---
+// T1 holds keys seen once recently, T2 keys seen at least twice. B1/B2 are
+// "ghost" lists remembering keys recently evicted from T1/T2 (keys only, no
+// values). A miss that hits a ghost list shifts the target size `p` of T1,
+// so the cache self-tunes between recency and frequency.
+class ArcPolicy implements EvictionPolicy {
+    private static final int T1 = 1;
+    private static final int T2 = 2;
+    private static final int B1 = 3;
+    private static final int B2 = 4;
+
+    private final int capacity;
+    private final Map<Integer, Node> nodes = new HashMap<>(); // Node.value = list tag
+    private final DoublyLinkedList t1 = new DoublyLinkedList();
+    private final DoublyLinkedList t2 = new DoublyLinkedList();
+    private final DoublyLinkedList b1 = new DoublyLinkedList();
+    private final DoublyLinkedList b2 = new DoublyLinkedList();
+    private int t1Size, t2Size, b1Size, b2Size;
+    private int p; // Target size of T1
+    private boolean adapted; // p already adjusted for the pending insert
+
+    public ArcPolicy(int capacity) {
+        this.capacity = capacity;
+    }
+
+    @Override
+    public void recordAccess(int key) {
+        Node node = nodes.get(key);
+        if (node.value == T1) {
+            t1.removeNode(node);
+            t1Size--;
+            node.value = T2;
+            t2Size++;
+        } else {
+            t2.removeNode(node);
+        }
+        t2.addToHead(node);
+    }
+
+    @Override
+    public int selectVictim(int candidate) {
+        Node ghost = nodes.get(candidate);
+        if (ghost != null) {
+            adapt(ghost);
+            return replace(ghost.value == B2);
+        }
+
+        // Candidate is a brand-new key
+        if (t1Size + b1Size >= capacity) {
+            if (t1Size < capacity) {
+                dropGhost(b1, B1);
+                return replace(false);
+            }
+            // B1 is empty and T1 fills the cache: evict outright, nothing to remember
+            return evict(t1.removeTail(), T1, 0);
+        }
+        if (t1Size + t2Size + b1Size + b2Size >= 2 * capacity) {
+            dropGhost(b2, B2);
+        }
+        return replace(false);
+    }
+
+    @Override
+    public void recordInsert(int key) {
+        Node node = nodes.get(key);
+        if (node == null) {
+            node = new Node(key, T1);
+            nodes.put(key, node);
+            t1.addToHead(node);
+            t1Size++;
+        } else {
+            // Ghost hit: the key has proven reuse, so it goes straight to T2
+            if (!adapted)
+                adapt(node);
+            if (node.value == B1) {
+                b1.removeNode(node);
+                b1Size--;
+            } else {
+                b2.removeNode(node);
+                b2Size--;
+            }
+            node.value = T2;
+            t2.addToHead(node);
+            t2Size++;
+        }
+        adapted = false;
+    }
+
+    private void adapt(Node ghost) {
+        if (ghost.value == B1) {
+            p = Math.min(capacity, p + Math.max(b2Size / b1Size, 1));
+        } else {
+            p = Math.max(0, p - Math.max(b1Size / b2Size, 1));
+        }
+        adapted = true;
+    }
+
+    // Moves the LRU of T1 or T2 to its ghost list and returns its key
+    private int replace(boolean candidateInB2) {
+        if (t2Size == 0 || (t1Size > 0 && (t1Size > p || (candidateInB2 && t1Size == p)))) {
+            return evict(t1.removeTail(), T1, B1);
+        }
+        return evict(t2.removeTail(), T2, B2);
+    }
+
+    private int evict(Node victim, int from, int ghostTag) {
+        if (from == T1)
+            t1Size--;
+        else
+            t2Size--;
+
+        if (ghostTag == B1) {
+            victim.value = B1;
+            b1.addToHead(victim);
+            b1Size++;
+        } else if (ghostTag == B2) {
+            victim.value = B2;
+            b2.addToHead(victim);
+            b2Size++;
+        } else {
+            nodes.remove(victim.key);
+        }
+        return victim.key;
+    }
+
+    private void dropGhost(DoublyLinkedList ghosts, int tag) {
+        Node oldest = ghosts.removeTail();
+        if (oldest == null)
+            return;
+        nodes.remove(oldest.key);
+        if (tag == B1)
+            b1Size--;
+        else
+            b2Size--;
+    }
+}
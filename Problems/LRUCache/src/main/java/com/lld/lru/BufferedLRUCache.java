@@ -0,0 +1,177 @@
+package com.lld.lru;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+// --- Read Buffer ---
+// Bounded lock-free ring buffer of pending "this node was read" events.
+// Many producers (readers) CAS the write counter; a single consumer (whoever
+// holds the eviction lock) drains. When full, new events are simply dropped.
+class ReadBuffer {
+    static final int SIZE = 16; // Power of two
+    private static final int MASK = SIZE - 1;
+
+    private final AtomicReferenceArray<Node> slots = new AtomicReferenceArray<>(SIZE);
+    private final AtomicLong writeCounter = new AtomicLong();
+    private volatile long readCounter; // Only written by the drainer
+
+    // Returns false if the event was dropped (buffer full or lost a CAS race)
+    public boolean offer(Node node) {
+        long head = readCounter;
+        long tail = writeCounter.get();
+        if (tail - head >= SIZE)
+            return false;
+        if (!writeCounter.compareAndSet(tail, tail + 1))
+            return false;
+        slots.lazySet((int) (tail & MASK), node);
+        return true;
+    }
+
+    public boolean isFull() {
+        return writeCounter.get() - readCounter >= SIZE;
+    }
+
+    // Caller must hold the eviction lock
+    public void drainTo(BufferedLRUCache cache) {
+        long head = readCounter;
+        long tail = writeCounter.get();
+        for (; head < tail; head++) {
+            int index = (int) (head & MASK);
+            Node node = slots.get(index);
+            if (node == null)
+                break; // Slot claimed but not yet published; pick it up next drain
+            slots.lazySet(index, null);
+            cache.onRead(node);
+        }
+        readCounter = head;
+    }
+}
+
+// --- Buffered LRU Cache ---
+// A hit no longer touches the list. Lookups go to a ConcurrentHashMap and the
+// access is recorded in a striped ReadBuffer. Buffers are replayed into the
+// DoublyLinkedList in batches by whichever thread wins tryLock(), so readers
+// never wait. Under heavy contention some promotions are dropped - LRU order
+// becomes approximate, which is an acceptable trade for flat read latency.
+class BufferedLRUCache implements Cache {
+    private final int capacity;
+    private final Map<Integer, Node> map;
+    private final DoublyLinkedList dll;
+    private final ReentrantLock evictionLock;
+    private final ReadBuffer[] readBuffers;
+    private final int bufferMask;
+    private int size; // Guarded by evictionLock
+
+    public BufferedLRUCache(int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("capacity must be positive");
+        this.capacity = capacity;
+        this.map = new ConcurrentHashMap<>();
+        this.dll = new DoublyLinkedList();
+        this.evictionLock = new ReentrantLock();
+
+        int stripes = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1);
+        this.readBuffers = new ReadBuffer[stripes];
+        this.bufferMask = stripes - 1;
+        for (int i = 0; i < stripes; i++) {
+            readBuffers[i] = new ReadBuffer();
+        }
+    }
+
+    @Override
+    public int get(int key) {
+        Node node = map.get(key);
+        if (node == null)
+            return -1;
+
+        ReadBuffer buffer = readBuffers[stripe()];
+        if (!buffer.offer(node) || buffer.isFull()) {
+            tryDrain();
+        }
+        return node.value;
+    }
+
+    @Override
+    public void put(int key, int value) {
+        evictionLock.lock();
+        try {
+            drainReadBuffers(); // Eviction must see the latest recency
+            putLocked(key, value);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    // Reads are already lock-free; writes share one lock acquisition and one drain
+    @Override
+    public void putAll(int[] keys, int from, int to, int[] values) {
+        evictionLock.lock();
+        try {
+            drainReadBuffers();
+            for (int i = from; i < to; i++) {
+                putLocked(keys[i], values[i]);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void putLocked(int key, int value) {
+        Node node = map.get(key);
+        if (node != null) {
+            node.value = value;
+            map.put(key, node); // Re-publish so lock-free readers see the new value
+            dll.removeNode(node);
+            dll.addToHead(node);
+        } else {
+            if (size == capacity) {
+                Node lru = dll.removeTail();
+                map.remove(lru.key);
+                size--;
+            }
+            Node newNode = new Node(key, value);
+            dll.addToHead(newNode);
+            map.put(key, newNode);
+            size++;
+        }
+    }
+
+    @Override
+    public int size() {
+        return map.size();
+    }
+
+    // Never blocks: if someone else is draining, our events are in their batch
+    private void tryDrain() {
+        if (evictionLock.tryLock()) {
+            try {
+                drainReadBuffers();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    private void drainReadBuffers() {
+        for (ReadBuffer buffer : readBuffers) {
+            buffer.drainTo(this);
+        }
+    }
+
+    // Replays one buffered read. Caller holds evictionLock.
+    void onRead(Node node) {
+        // The node may have been evicted after it was buffered; relinking it would corrupt the list
+        if (map.get(node.key) != node)
+            return;
+        dll.removeNode(node);
+        dll.addToHead(node);
+    }
+
+    private int stripe() {
+        int h = (int) Thread.currentThread().threadId() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & bufferMask;
+    }
+}
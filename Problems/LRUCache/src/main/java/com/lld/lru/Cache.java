@@ -0,0 +1,47 @@
+package com.lld.lru;
+
+// --- Cache API ---
+// Common contract for every cache variant in this module, so callers (and
+// benchmarks) can swap implementations without touching call sites.
+interface Cache {
+    // Returns the cached value, or -1 on a miss.
+    int get(int key);
+
+    // Same answer as get(), but not counted as a hit or miss: for internal re-checks.
+    // Caches that don't record stats can keep the default.
+    default int peek(int key) {
+        return get(key);
+    }
+
+    void put(int key, int value);
+
+    int size();
+
+    // Bulk variants: results[i] receives the value for keys[i] (or -1).
+    default void getAll(int[] keys, int[] results) {
+        if (results.length < keys.length)
+            throw new IllegalArgumentException("results must be at least as long as keys");
+        getAll(keys, 0, keys.length, results);
+    }
+
+    default void putAll(int[] keys, int[] values) {
+        if (values.length < keys.length)
+            throw new IllegalArgumentException("values must be at least as long as keys");
+        putAll(keys, 0, keys.length, values);
+    }
+
+    // Range forms over positions from..to-1 only, so a caller can hand out slices of
+    // one buffer without copying. The defaults just loop; implementations override
+    // them to take their lock once per batch.
+    default void getAll(int[] keys, int from, int to, int[] results) {
+        for (int i = from; i < to; i++) {
+            results[i] = get(keys[i]);
+        }
+    }
+
+    default void putAll(int[] keys, int from, int to, int[] values) {
+        for (int i = from; i < to; i++) {
+            put(keys[i], values[i]);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.lld.lru;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// --- Warm-Start Snapshots ---
+// File layout: [int MAGIC][int count] then `count` (int key, int value) pairs,
+// least recently used first. Written through memory-mapped windows to a temp
+// file and atomically moved into place, so a crash never leaves a torn snapshot.
+// Restore bulk-loads with putAll() in batches instead of replaying single puts.
+// TTLs are not persisted: restored entries start a fresh expire-after-write.
+class CacheSnapshotter {
+    private static final int MAGIC = 0x4C525531; // "LRU1"
+    private static final int HEADER_BYTES = 2 * Integer.BYTES;
+    private static final int ENTRY_BYTES = 2 * Integer.BYTES;
+    private static final long WINDOW_BYTES = 1L << 30; // A MappedByteBuffer is int-indexed
+    private static final int RESTORE_BATCH = 4096;
+
+    public static int save(LRUCache cache, Path file) throws IOException {
+        long[] entries = cache.entriesByRecency(); // The only step that touches the cache lock
+        long size = HEADER_BYTES + (long) entries.length * ENTRY_BYTES;
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            int next = 0;
+            for (long offset = 0; offset < size; offset += WINDOW_BYTES) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, offset,
+                        Math.min(WINDOW_BYTES, size - offset));
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+                if (offset == 0) {
+                    buffer.putInt(MAGIC);
+                    buffer.putInt(entries.length);
+                }
+                while (next < entries.length && buffer.remaining() >= ENTRY_BYTES) {
+                    long entry = entries[next++];
+                    buffer.putInt((int) (entry >>> 32)); // Key
+                    buffer.putInt((int) entry);          // Value
+                }
+                buffer.force();
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return entries.length;
+    }
+
+    // Returns the number of entries loaded
+    public static int restore(LRUCache cache, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES)
+                throw new IOException("Snapshot too small: " + file);
+
+            int[] keys = new int[RESTORE_BATCH];
+            int[] values = new int[RESTORE_BATCH];
+            int count = 0;
+            int skip = 0;
+            int read = 0;
+            int batched = 0;
+            for (long offset = 0; offset < size; offset += WINDOW_BYTES) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset,
+                        Math.min(WINDOW_BYTES, size - offset));
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+                if (offset == 0) {
+                    if (buffer.getInt() != MAGIC)
+                        throw new IOException("Not a cache snapshot: " + file);
+                    count = buffer.getInt();
+                    if (size != HEADER_BYTES + (long) count * ENTRY_BYTES)
+                        throw new IOException("Truncated snapshot: " + file);
+                    // Entries that would be evicted immediately are not worth loading
+                    skip = Math.max(0, count - cache.capacity());
+                }
+                while (read < count && buffer.remaining() >= ENTRY_BYTES) {
+                    int key = buffer.getInt();
+                    int value = buffer.getInt();
+                    if (read++ < skip)
+                        continue;
+                    keys[batched] = key;
+                    values[batched] = value;
+                    if (++batched == RESTORE_BATCH) {
+                        cache.putAll(keys, values);
+                        batched = 0;
+                    }
+                }
+            }
+            if (batched > 0)
+                cache.putAll(keys, 0, batched, values); // Partial tail batch, no copy
+            return count - skip;
+        }
+    }
+
+    // Periodic background snapshots. A failed run is handed to `onFailure` (the caller
+    // decides whether to log, alert or cancel) and retried on the next run; catching it
+    // here also keeps one bad run from silently cancelling the schedule.
+    public static ScheduledFuture<?> scheduleSnapshots(LRUCache cache, Path file, long period, TimeUnit unit,
+            ScheduledExecutorService scheduler, Consumer<? super Exception> onFailure) {
+        return scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                save(cache, file);
+            } catch (IOException | RuntimeException e) {
+                onFailure.accept(e);
+            }
+        }, period, period, unit);
+    }
+}
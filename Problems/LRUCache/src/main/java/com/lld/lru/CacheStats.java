@@ -0,0 +1,140 @@
+package com.lld.lru;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// --- Statistics Snapshot ---
+// Immutable point-in-time view; derived rates are computed, never stored.
+record CacheStats(long hitCount, long missCount, long putCount, long evictionCount,
+        long loadSuccessCount, long loadFailureCount, long totalLoadTimeNanos, long elapsedNanos) {
+
+    public long requestCount() {
+        return hitCount + missCount;
+    }
+
+    public double hitRate() {
+        long requests = requestCount();
+        return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+
+    public double averageLoadPenaltyNanos() {
+        long loads = loadSuccessCount + loadFailureCount;
+        return loads == 0 ? 0.0 : (double) totalLoadTimeNanos / loads;
+    }
+
+    public double putsPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : putCount * 1_000_000_000.0 / elapsedNanos;
+    }
+}
+
+// --- Statistics Recorder ---
+// Opt-in: caches default to DISABLED, which costs one virtual no-op call.
+interface StatsCounter {
+    StatsCounter DISABLED = new DisabledStatsCounter();
+
+    void recordHits(int count);
+
+    void recordMisses(int count);
+
+    void recordPuts(int count);
+
+    void recordEviction();
+
+    void recordLoadSuccess(long loadTimeNanos);
+
+    void recordLoadFailure(long loadTimeNanos);
+
+    CacheStats snapshot();
+}
+
+class DisabledStatsCounter implements StatsCounter {
+    private static final CacheStats EMPTY = new CacheStats(0, 0, 0, 0, 0, 0, 0, 0);
+
+    @Override
+    public void recordHits(int count) {
+    }
+
+    @Override
+    public void recordMisses(int count) {
+    }
+
+    @Override
+    public void recordPuts(int count) {
+    }
+
+    @Override
+    public void recordEviction() {
+    }
+
+    @Override
+    public void recordLoadSuccess(long loadTimeNanos) {
+    }
+
+    @Override
+    public void recordLoadFailure(long loadTimeNanos) {
+    }
+
+    @Override
+    public CacheStats snapshot() {
+        return EMPTY;
+    }
+}
+
+// LongAdder stripes its cells per thread, so counting never becomes the contention point
+class ConcurrentStatsCounter implements StatsCounter {
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder loadSuccesses = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder totalLoadTime = new LongAdder();
+    private final Ticker ticker;
+    private final long startedAt;
+
+    public ConcurrentStatsCounter() {
+        this(Ticker.system());
+    }
+
+    public ConcurrentStatsCounter(Ticker ticker) {
+        this.ticker = ticker;
+        this.startedAt = ticker.read();
+    }
+
+    @Override
+    public void recordHits(int count) {
+        hits.add(count);
+    }
+
+    @Override
+    public void recordMisses(int count) {
+        misses.add(count);
+    }
+
+    @Override
+    public void recordPuts(int count) {
+        puts.add(count);
+    }
+
+    @Override
+    public void recordEviction() {
+        evictions.increment();
+    }
+
+    @Override
+    public void recordLoadSuccess(long loadTimeNanos) {
+        loadSuccesses.increment();
+        totalLoadTime.add(loadTimeNanos);
+    }
+
+    @Override
+    public void recordLoadFailure(long loadTimeNanos) {
+        loadFailures.increment();
+        totalLoadTime.add(loadTimeNanos);
+    }
+
+    @Override
+    public CacheStats snapshot() {
+        return new CacheStats(hits.sum(), misses.sum(), puts.sum(), evictions.sum(),
+                loadSuccesses.sum(), loadFailures.sum(), totalLoadTime.sum(), ticker.read() - startedAt);
+    }
+}
@@ -0,0 +1,171 @@
+package com.lld.lru;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// --- Eviction Policy ---
+// Strategy Pattern: decides *which* resident key leaves when PolicyCache is full.
+// Policies only track keys; PolicyCache owns the values. Not thread-safe on its
+// own - the owning cache calls it under its lock.
+interface EvictionPolicy {
+    // A resident key was read or overwritten
+    void recordAccess(int key);
+
+    // Cache is full and `candidate` is about to be inserted. Returns the resident
+    // key to evict; the policy must forget it (or keep it only as a ghost).
+    int selectVictim(int candidate);
+
+    // `key` is now resident
+    void recordInsert(int key);
+}
+
+enum PolicyType {
+    LRU, LFU, SLRU, ARC, W_TINY_LFU
+}
+
+// --- Factory ---
+class EvictionPolicyFactory {
+    public static EvictionPolicy create(PolicyType type, int capacity) {
+        switch (type) {
+            case LRU:
+                return new LruPolicy();
+            case LFU:
+                return new LfuPolicy();
+            case SLRU:
+                return new SlruPolicy(capacity);
+            case ARC:
+                return new ArcPolicy(capacity);
+            case W_TINY_LFU:
+                return new WTinyLfuPolicy(capacity);
+            default:
+                throw new IllegalArgumentException("Unknown PolicyType");
+        }
+    }
+}
+
+// --- LRU: evict the least recently used key ---
+class LruPolicy implements EvictionPolicy {
+    private final Map<Integer, Node> nodes = new HashMap<>();
+    private final DoublyLinkedList dll = new DoublyLinkedList();
+
+    @Override
+    public void recordAccess(int key) {
+        Node node = nodes.get(key);
+        dll.removeNode(node);
+        dll.addToHead(node);
+    }
+
+    @Override
+    public int selectVictim(int candidate) {
+        Node lru = dll.removeTail();
+        nodes.remove(lru.key);
+        return lru.key;
+    }
+
+    @Override
+    public void recordInsert(int key) {
+        Node node = new Node(key, 0);
+        dll.addToHead(node);
+        nodes.put(key, node);
+    }
+}
+
+// --- LFU: evict the least frequently used key, LRU among ties ---
+// O(1) via one DLL per frequency; Node.value holds the key's frequency.
+class LfuPolicy implements EvictionPolicy {
+    private final Map<Integer, Node> nodes = new HashMap<>();
+    private final Map<Integer, DoublyLinkedList> frequencyLists = new HashMap<>();
+    private int minFrequency;
+
+    @Override
+    public void recordAccess(int key) {
+        Node node = nodes.get(key);
+        int frequency = node.value;
+        DoublyLinkedList list = frequencyLists.get(frequency);
+        list.removeNode(node);
+        if (list.isEmpty()) {
+            frequencyLists.remove(frequency);
+            if (minFrequency == frequency)
+                minFrequency++;
+        }
+        node.value = frequency + 1;
+        listFor(node.value).addToHead(node);
+    }
+
+    @Override
+    public int selectVictim(int candidate) {
+        DoublyLinkedList list = frequencyLists.get(minFrequency);
+        Node victim = list.removeTail();
+        if (list.isEmpty())
+            frequencyLists.remove(minFrequency);
+        nodes.remove(victim.key);
+        return victim.key;
+    }
+
+    @Override
+    public void recordInsert(int key) {
+        Node node = new Node(key, 1);
+        listFor(1).addToHead(node);
+        nodes.put(key, node);
+        minFrequency = 1;
+    }
+
+    private DoublyLinkedList listFor(int frequency) {
+        return frequencyLists.computeIfAbsent(frequency, f -> new DoublyLinkedList());
+    }
+}
+
+// --- Segmented LRU: new keys start on probation, a second hit protects them ---
+// A one-pass scan only ever churns the probation segment.
+class SlruPolicy implements EvictionPolicy {
+    private static final int PROBATION = 0;
+    private static final int PROTECTED = 1;
+
+    private final Map<Integer, Node> nodes = new HashMap<>();
+    private final DoublyLinkedList probation = new DoublyLinkedList();
+    private final DoublyLinkedList protectedList = new DoublyLinkedList();
+    private final int protectedCapacity;
+    private int protectedSize;
+
+    public SlruPolicy(int capacity) {
+        this.protectedCapacity = Math.max(1, capacity * 4 / 5);
+    }
+
+    @Override
+    public void recordAccess(int key) {
+        Node node = nodes.get(key);
+        if (node.value == PROTECTED) {
+            protectedList.removeNode(node);
+            protectedList.addToHead(node);
+            return;
+        }
+
+        probation.removeNode(node);
+        node.value = PROTECTED;
+        protectedList.addToHead(node);
+        if (++protectedSize > protectedCapacity) {
+            Node demoted = protectedList.removeTail();
+            demoted.value = PROBATION;
+            probation.addToHead(demoted);
+            protectedSize--;
+        }
+    }
+
+    @Override
+    public int selectVictim(int candidate) {
+        Node victim = probation.removeTail();
+        if (victim == null) {
+            victim = protectedList.removeTail();
+            protectedSize--;
+        }
+        nodes.remove(victim.key);
+        return victim.key;
+    }
+
+    @Override
+    public void recordInsert(int key) {
+        Node node = new Node(key, PROBATION);
+        probation.addToHead(node);
+        nodes.put(key, node);
+    }
+}
@@ -0,0 +1,189 @@
+package com.lld.lru;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+// --- Primitive LRU Cache ---
+// Same contract as LRUCache, but no Integer boxing and no Node per entry.
+// - Index: open-addressing int[] (linear probing, load factor <= 0.5) holding entry slots.
+// - Recency list: parallel int[] prev/next arrays; slot `capacity` is the sentinel.
+// Entry slots are handed out once and then recycled on eviction, so the steady
+// state allocates nothing. Roughly 24 bytes/entry vs ~100 for HashMap<Integer, Node>.
+class IntLRUCache implements Cache {
+    private static final int EMPTY = -1;
+
+    private final int capacity;
+    private final int[] table; // Hash slot -> entry slot, EMPTY if free
+    private final int tableMask;
+
+    private final int[] keys;
+    private final int[] values;
+    private final int[] prev;
+    private final int[] next;
+    private final int head; // Sentinel: next[head] is MRU, prev[head] is LRU
+    private int size;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public IntLRUCache(int capacity) {
+        if (capacity <= 0 || capacity > (1 << 29))
+            throw new IllegalArgumentException("capacity must be in [1, 2^29]");
+        this.capacity = capacity;
+
+        int tableSize = Integer.highestOneBit(capacity * 2 - 1) << 1;
+        this.table = new int[tableSize];
+        this.tableMask = tableSize - 1;
+        Arrays.fill(table, EMPTY);
+
+        this.keys = new int[capacity];
+        this.values = new int[capacity];
+        this.prev = new int[capacity + 1];
+        this.next = new int[capacity + 1];
+        this.head = capacity;
+        prev[head] = head;
+        next[head] = head;
+    }
+
+    @Override
+    public int get(int key) {
+        lock.lock();
+        try {
+            int entry = find(key);
+            if (entry == EMPTY)
+                return -1;
+            unlink(entry);
+            linkAtHead(entry);
+            return values[entry];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void getAll(int[] keys, int from, int to, int[] results) {
+        lock.lock();
+        try {
+            for (int i = from; i < to; i++) {
+                int entry = find(keys[i]);
+                if (entry == EMPTY) {
+                    results[i] = -1;
+                    continue;
+                }
+                unlink(entry);
+                linkAtHead(entry);
+                results[i] = values[entry];
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(int key, int value) {
+        lock.lock();
+        try {
+            putLocked(key, value);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void putAll(int[] keys, int from, int to, int[] newValues) {
+        lock.lock();
+        try {
+            for (int i = from; i < to; i++) {
+                putLocked(keys[i], newValues[i]);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void putLocked(int key, int value) {
+        int entry = find(key);
+        if (entry != EMPTY) {
+            values[entry] = value;
+            unlink(entry);
+            linkAtHead(entry);
+            return;
+        }
+
+        if (size == capacity) {
+            // Recycle the LRU slot in place
+            entry = prev[head];
+            unlink(entry);
+            removeFromTable(keys[entry]);
+        } else {
+            entry = size++;
+        }
+        keys[entry] = key;
+        values[entry] = value;
+        insertIntoTable(key, entry);
+        linkAtHead(entry);
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // --- Recency list ---
+    private void linkAtHead(int entry) {
+        int first = next[head];
+        next[entry] = first;
+        prev[entry] = head;
+        prev[first] = entry;
+        next[head] = entry;
+    }
+
+    private void unlink(int entry) {
+        next[prev[entry]] = next[entry];
+        prev[next[entry]] = prev[entry];
+    }
+
+    // --- Open-addressing index ---
+    private int find(int key) {
+        for (int slot = hash(key); table[slot] != EMPTY; slot = (slot + 1) & tableMask) {
+            if (keys[table[slot]] == key)
+                return table[slot];
+        }
+        return EMPTY;
+    }
+
+    private void insertIntoTable(int key, int entry) {
+        int slot = hash(key);
+        while (table[slot] != EMPTY) {
+            slot = (slot + 1) & tableMask;
+        }
+        table[slot] = entry;
+    }
+
+    // Backward-shift deletion: no tombstones, so probe chains never degrade
+    private void removeFromTable(int key) {
+        int hole = hash(key);
+        while (keys[table[hole]] != key) {
+            hole = (hole + 1) & tableMask;
+        }
+
+        for (int slot = (hole + 1) & tableMask; table[slot] != EMPTY; slot = (slot + 1) & tableMask) {
+            int home = hash(keys[table[slot]]);
+            // Shift back only if the hole lies between the entry's home and its current slot
+            if (((slot - home) & tableMask) >= ((slot - hole) & tableMask)) {
+                table[hole] = table[slot];
+                hole = slot;
+            }
+        }
+        table[hole] = EMPTY;
+    }
+
+    private int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & tableMask;
+    }
+}
@@ -0,0 +1,144 @@
+package com.lld.lru;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntUnaryOperator;
+
+// --- Loading Cache (Request Coalescing) ---
+// On a miss, the first caller registers a future in `inFlight` and runs the
+// loader; every concurrent caller for the same key joins that future instead of
+// hitting the backend. With refresh-ahead, a hit on an entry close to expiry
+// triggers one background reload so hot keys never actually miss.
+// -1 is the cache's miss sentinel, so a loader returning -1 is not cached.
+// close() shuts down the executor only if this cache created it.
+class LoadingCache implements AutoCloseable {
+    private final Cache cache;
+    private final Executor executor;
+    private final ExecutorService ownedExecutor; // Created by us; null when the caller supplied one
+    private final ConcurrentHashMap<Integer, CompletableFuture<Integer>> inFlight;
+    private volatile StatsCounter stats = StatsCounter.DISABLED; // Load successes/failures and time
+
+    // Refresh-ahead (refreshable == null means disabled)
+    private final LRUCache refreshable;
+    private final long refreshAheadNanos;
+
+    public LoadingCache(Cache cache) {
+        this(cache, Executors.newVirtualThreadPerTaskExecutor(), null, 0, true);
+    }
+
+    public LoadingCache(Cache cache, Executor executor) {
+        this(cache, executor, null, 0, false);
+    }
+
+    // `cache` must be built with expiry; entries are reloaded once inside the last `refreshAhead` of their TTL
+    public LoadingCache(LRUCache cache, Executor executor, long refreshAhead, TimeUnit unit) {
+        this(cache, executor, cache, unit.toNanos(refreshAhead), false);
+        if (refreshAhead <= 0)
+            throw new IllegalArgumentException("refreshAhead must be positive");
+    }
+
+    private LoadingCache(Cache cache, Executor executor, LRUCache refreshable, long refreshAheadNanos,
+            boolean ownsExecutor) {
+        this.cache = cache;
+        this.executor = executor;
+        this.ownedExecutor = ownsExecutor ? (ExecutorService) executor : null;
+        this.inFlight = new ConcurrentHashMap<>();
+        this.refreshable = refreshable;
+        this.refreshAheadNanos = refreshAheadNanos;
+    }
+
+    // Blocks until loaded; the caller's thread runs the loader unless a load is already in flight.
+    // Loader failures surface as CompletionException.
+    public int get(int key, IntUnaryOperator loader) {
+        int value = cache.get(key);
+        if (value != -1) {
+            refreshIfDue(key, loader);
+            return value;
+        }
+        return load(key, loader, null, false).join();
+    }
+
+    public CompletableFuture<Integer> getAsync(int key, IntUnaryOperator loader) {
+        int value = cache.get(key);
+        if (value != -1) {
+            refreshIfDue(key, loader);
+            return CompletableFuture.completedFuture(value);
+        }
+        return load(key, loader, executor, false);
+    }
+
+    public void setStatsCounter(StatsCounter stats) {
+        this.stats = stats;
+    }
+
+    // Loads already running finish; later async loads fail with RejectedExecutionException
+    @Override
+    public void close() {
+        if (ownedExecutor != null)
+            ownedExecutor.shutdown();
+    }
+
+    int inFlightCount() {
+        return inFlight.size();
+    }
+
+    private void refreshIfDue(int key, IntUnaryOperator loader) {
+        if (refreshable != null && refreshable.expiresWithin(key, refreshAheadNanos)) {
+            load(key, loader, executor, true);
+        }
+    }
+
+    // executor == null runs the loader inline on the winning caller
+    private CompletableFuture<Integer> load(int key, IntUnaryOperator loader, Executor runOn, boolean refresh) {
+        CompletableFuture<Integer> future = new CompletableFuture<>();
+        CompletableFuture<Integer> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null)
+            return existing; // Coalesced
+
+        // A load may have finished between our miss and our registration; peek, since
+        // the caller's get() already counted this lookup as a miss
+        if (!refresh) {
+            int cached = cache.peek(key);
+            if (cached != -1) {
+                inFlight.remove(key, future);
+                future.complete(cached);
+                return future;
+            }
+        }
+
+        // Deregister before completing, so a waiter that wakes up never sees a finished load as in flight
+        Runnable task = () -> {
+            long startedAt = System.nanoTime();
+            try {
+                int value = loader.applyAsInt(key);
+                long loadNanos = System.nanoTime() - startedAt;
+                if (value != -1)
+                    cache.put(key, value); // Before removal, so late arrivals find it in the cache
+                stats.recordLoadSuccess(loadNanos); // Only once the value is really in: a failed put is a failure
+                inFlight.remove(key, future);
+                future.complete(value);
+            } catch (Throwable t) {
+                stats.recordLoadFailure(System.nanoTime() - startedAt);
+                inFlight.remove(key, future);
+                future.completeExceptionally(t);
+            }
+        };
+
+        if (runOn == null) {
+            task.run();
+        } else {
+            try {
+                runOn.execute(task);
+            } catch (RejectedExecutionException e) { // Shut down or saturated: don't strand the waiters
+                inFlight.remove(key, future);
+                future.completeExceptionally(e);
+            }
+        }
+        return future;
+    }
+}
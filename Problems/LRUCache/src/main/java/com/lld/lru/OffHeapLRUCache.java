@@ -0,0 +1,284 @@
+package com.lld.lru;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+// --- Off-Heap Slab ---
+// Direct memory carved into fixed-size blocks. A value lives in a chain of blocks;
+// each block is [int next][payload], and the first payload starts with the value
+// length. Free blocks are threaded through the same `next` field, so the only
+// on-heap state is a couple of counters. ByteBuffer is int-indexed, so memory is
+// split into arenas of at most 1 GB. Direct buffers have no explicit free: release()
+// drops the arenas so the next GC can return their memory to the OS.
+class BlockSlab {
+    private static final int NO_BLOCK = -1;
+    private static final int HEADER = Integer.BYTES;
+    private static final int MAX_ARENA_BYTES = 1 << 30;
+
+    private final int blockSize;
+    private final int payloadSize;
+    private final int totalBlocks;
+    private final int arenaShift; // log2(blocks per arena)
+    private final int arenaMask;
+    private ByteBuffer[] arenas; // null once released
+
+    private int freeHead = NO_BLOCK; // Recycled blocks
+    private int highWater;           // Blocks [highWater, totalBlocks) never used yet
+    private int freeBlocks;
+
+    public BlockSlab(long capacityBytes, int blockSize) {
+        if (Integer.bitCount(blockSize) != 1 || blockSize < 16)
+            throw new IllegalArgumentException("blockSize must be a power of two >= 16");
+        if (capacityBytes < blockSize || capacityBytes / blockSize > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("capacityBytes out of range: " + capacityBytes);
+
+        this.blockSize = blockSize;
+        this.payloadSize = blockSize - HEADER;
+        this.totalBlocks = (int) (capacityBytes / blockSize);
+        this.freeBlocks = totalBlocks;
+
+        int blocksPerArena = blocksPerArena(totalBlocks, blockSize);
+        this.arenaShift = Integer.numberOfTrailingZeros(blocksPerArena);
+        this.arenaMask = blocksPerArena - 1;
+
+        int arenaCount = arenaCount(totalBlocks, blockSize);
+        this.arenas = new ByteBuffer[arenaCount];
+        for (int i = 0; i < arenaCount; i++) {
+            int blocks = Math.min(blocksPerArena, totalBlocks - i * blocksPerArena);
+            arenas[i] = ByteBuffer.allocateDirect(blocks * blockSize);
+        }
+    }
+
+    // Smallest power of two covering every block, capped at one 1 GB arena. The shift
+    // is done in long: for totalBlocks > 2^30 the int shift would overflow.
+    static int blocksPerArena(int totalBlocks, int blockSize) {
+        long covering = totalBlocks <= 1 ? 1 : Long.highestOneBit(totalBlocks - 1L) << 1;
+        return (int) Math.min(MAX_ARENA_BYTES / blockSize, covering);
+    }
+
+    static int arenaCount(int totalBlocks, int blockSize) {
+        int blocksPerArena = blocksPerArena(totalBlocks, blockSize);
+        return (int) ((totalBlocks + (long) blocksPerArena - 1) / blocksPerArena);
+    }
+
+    // In long: a length near Integer.MAX_VALUE would overflow the int sum
+    public long blocksFor(long length) {
+        return (length + HEADER + payloadSize - 1) / payloadSize; // + length prefix
+    }
+
+    public int freeBlocks() {
+        return freeBlocks;
+    }
+
+    public int totalBlocks() {
+        return totalBlocks;
+    }
+
+    public int blockSize() {
+        return blockSize;
+    }
+
+    // Caller guarantees freeBlocks() >= blocksFor(value.length)
+    public int write(byte[] value) {
+        int count = (int) blocksFor(value.length);
+        int first = allocate();
+        int block = first;
+        int written = 0;
+        for (int i = 0; i < count; i++) {
+            int next = (i == count - 1) ? NO_BLOCK : allocate();
+            ByteBuffer arena = arena(block);
+            int base = offset(block);
+            arena.putInt(base, next);
+
+            int pos = base + HEADER;
+            int room = payloadSize;
+            if (i == 0) {
+                arena.putInt(pos, value.length);
+                pos += Integer.BYTES;
+                room -= Integer.BYTES;
+            }
+            int chunk = Math.min(room, value.length - written);
+            arena.put(pos, value, written, chunk);
+            written += chunk;
+            block = next;
+        }
+        return first;
+    }
+
+    public byte[] read(int first) {
+        ByteBuffer firstArena = arena(first);
+        int length = firstArena.getInt(offset(first) + HEADER);
+        byte[] out = new byte[length];
+
+        int block = first;
+        int read = 0;
+        boolean isFirst = true;
+        while (block != NO_BLOCK) {
+            ByteBuffer arena = arena(block);
+            int base = offset(block);
+            int pos = base + HEADER + (isFirst ? Integer.BYTES : 0);
+            int room = payloadSize - (isFirst ? Integer.BYTES : 0);
+            int chunk = Math.min(room, length - read);
+            arena.get(pos, out, read, chunk);
+            read += chunk;
+            isFirst = false;
+            block = arena.getInt(base);
+        }
+        return out;
+    }
+
+    // Returns the whole chain to the free list
+    public void free(int first) {
+        int last = first;
+        int count = 1;
+        int next;
+        while ((next = arena(last).getInt(offset(last))) != NO_BLOCK) {
+            last = next;
+            count++;
+        }
+        arena(last).putInt(offset(last), freeHead);
+        freeHead = first;
+        freeBlocks += count;
+    }
+
+    private int allocate() {
+        freeBlocks--;
+        if (freeHead != NO_BLOCK) {
+            int block = freeHead;
+            freeHead = arena(block).getInt(offset(block));
+            return block;
+        }
+        return highWater++;
+    }
+
+    public void release() {
+        arenas = null;
+        freeHead = NO_BLOCK;
+        freeBlocks = 0;
+    }
+
+    public boolean isReleased() {
+        return arenas == null;
+    }
+
+    private ByteBuffer arena(int block) {
+        return arenas[block >>> arenaShift];
+    }
+
+    private int offset(int block) {
+        return (block & arenaMask) * blockSize;
+    }
+}
+
+// --- Off-Heap LRU Cache ---
+// Sibling of LRUCache for large serialized values. Capacity is a byte budget;
+// the value bytes live in a BlockSlab outside the Java heap, and the heap only
+// holds the index: Node.value stores the first slab block instead of the value.
+// Evicting the DLL tail returns its blocks to the slab for reuse.
+// The slab is allocated up front and lives as long as the cache; close() drops it,
+// after which get/put throw IllegalStateException.
+class OffHeapLRUCache implements AutoCloseable {
+    private static final int DEFAULT_BLOCK_SIZE = 256;
+
+    private final Map<Integer, Node> map;
+    private final DoublyLinkedList dll;
+    private final BlockSlab slab;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public OffHeapLRUCache(long capacityBytes) {
+        this(capacityBytes, DEFAULT_BLOCK_SIZE);
+    }
+
+    public OffHeapLRUCache(long capacityBytes, int blockSize) {
+        this.map = new HashMap<>();
+        this.dll = new DoublyLinkedList();
+        this.slab = new BlockSlab(capacityBytes, blockSize);
+    }
+
+    // Returns a copy of the value, or null on a miss
+    public byte[] get(int key) {
+        lock.lock();
+        try {
+            ensureOpen();
+            Node node = map.get(key);
+            if (node == null)
+                return null;
+            dll.removeNode(node);
+            dll.addToHead(node);
+            return slab.read(node.value);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Returns false if the value can never fit in the byte budget
+    public boolean put(int key, byte[] value) {
+        long needed = slab.blocksFor(value.length);
+        if (needed > slab.totalBlocks())
+            return false;
+
+        lock.lock();
+        try {
+            ensureOpen();
+            Node existing = map.remove(key);
+            if (existing != null) {
+                dll.removeNode(existing);
+                slab.free(existing.value);
+            }
+
+            while (slab.freeBlocks() < needed) {
+                Node lru = dll.removeTail();
+                map.remove(lru.key);
+                slab.free(lru.value);
+            }
+
+            Node node = new Node(key, slab.write(value));
+            dll.addToHead(node);
+            map.put(key, node);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return map.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Bytes held by live entries, including per-block headers and tail slack
+    public long usedBytes() {
+        lock.lock();
+        try {
+            return slab.isReleased() ? 0 : (long) (slab.totalBlocks() - slab.freeBlocks()) * slab.blockSize();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Idempotent; the direct memory goes back once the GC collects the arenas
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            map.clear();
+            while (dll.removeTail() != null) {
+                // Unlink the index so the Nodes can be collected too
+            }
+            slab.release();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void ensureOpen() {
+        if (slab.isReleased())
+            throw new IllegalStateException("Cache closed");
+    }
+}
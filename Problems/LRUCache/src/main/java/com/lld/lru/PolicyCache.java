@@ -0,0 +1,71 @@
+package com.lld.lru;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+// --- Policy-Driven Cache ---
+// Same get/put API as LRUCache, but the eviction decision is delegated to an
+// EvictionPolicy, so LRU, LFU, SLRU, ARC and W-TinyLFU can be compared on
+// identical traffic. Every policy mutates on reads, hence a single lock.
+class PolicyCache implements Cache {
+    private final int capacity;
+    private final Map<Integer, Integer> values;
+    private final EvictionPolicy policy;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public PolicyCache(int capacity, PolicyType type) {
+        this(capacity, EvictionPolicyFactory.create(type, capacity));
+    }
+
+    public PolicyCache(int capacity, EvictionPolicy policy) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("capacity must be positive");
+        this.capacity = capacity;
+        this.values = new HashMap<>();
+        this.policy = policy;
+    }
+
+    @Override
+    public int get(int key) {
+        lock.lock();
+        try {
+            Integer value = values.get(key);
+            if (value == null)
+                return -1;
+            policy.recordAccess(key);
+            return value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(int key, int value) {
+        lock.lock();
+        try {
+            if (values.containsKey(key)) {
+                values.put(key, value);
+                policy.recordAccess(key);
+                return;
+            }
+            if (values.size() == capacity) {
+                values.remove(policy.selectVictim(key));
+            }
+            values.put(key, value);
+            policy.recordInsert(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return values.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
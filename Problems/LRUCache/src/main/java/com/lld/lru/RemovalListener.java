@@ -0,0 +1,13 @@
+package com.lld.lru;
+
+enum RemovalCause {
+    EVICTED, // Capacity pressure
+    EXPIRED  // TTL elapsed
+}
+
+// --- Removal Listener ---
+// Handed to the cache's listener Executor, so user code runs outside the critical section.
+@FunctionalInterface
+interface RemovalListener {
+    void onRemoval(int key, int value, RemovalCause cause);
+}
@@ -0,0 +1,158 @@
+package com.lld.lru;
+
+import java.util.Arrays;
+
+// --- Segmented (Lock-Striped) LRU Cache ---
+// A single LRUCache funnels every get() through one write lock, because a hit
+// promotes the node and mutates the list. Hashing keys into N independent
+// segments - each with its own map, list and lock - lets unrelated keys proceed
+// in parallel. Eviction is strict LRU *within* a segment, approximate globally.
+// With bufferedReads, segments are BufferedLRUCaches and hits take no lock at all.
+class SegmentedLRUCache implements Cache {
+    private static final int MAX_RETAINED_BATCH = 4096;
+
+    private static final class Scratch {
+        final int[] start;  // Segment s owns slots start[s]..start[s + 1] - 1
+        final int[] cursor;
+        final int[] order;  // Slot -> position in the caller's arrays
+        final int[] keys;   // Keys sorted by segment
+        final int[] values; // Per slot: results of a get, or values for a put
+
+        Scratch(int segmentCount, int capacity) {
+            this.start = new int[segmentCount + 1];
+            this.cursor = new int[segmentCount];
+            this.order = new int[capacity];
+            this.keys = new int[capacity];
+            this.values = new int[capacity];
+        }
+    }
+
+    private final Cache[] segments;
+    private final int segmentMask;
+    private final ThreadLocal<Scratch> scratchBuffers;
+
+    public SegmentedLRUCache(int capacity) {
+        this(capacity, Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    public SegmentedLRUCache(int capacity, int concurrencyLevel) {
+        this(capacity, concurrencyLevel, false);
+    }
+
+    public SegmentedLRUCache(int capacity, int concurrencyLevel, boolean bufferedReads) {
+        if (capacity <= 0 || concurrencyLevel <= 0)
+            throw new IllegalArgumentException("capacity and concurrencyLevel must be positive");
+
+        // Power of two so segment selection is a mask, never more segments than slots
+        int count = Integer.highestOneBit(Math.min(capacity, concurrencyLevel));
+        this.segments = new Cache[count];
+        this.segmentMask = count - 1;
+
+        // Split the budget exactly: the first (capacity % count) segments take one extra slot
+        int base = capacity / count;
+        int remainder = capacity % count;
+        for (int i = 0; i < count; i++) {
+            int budget = base + (i < remainder ? 1 : 0);
+            segments[i] = bufferedReads ? new BufferedLRUCache(budget) : new LRUCache(budget);
+        }
+        this.scratchBuffers = ThreadLocal.withInitial(() -> new Scratch(count, 16));
+    }
+
+    @Override
+    public int get(int key) {
+        return segmentFor(key).get(key);
+    }
+
+    @Override
+    public void put(int key, int value) {
+        segmentFor(key).put(key, value);
+    }
+
+    // Groups the batch by segment so each segment's lock is taken once. The keys are
+    // sorted into a per-thread scratch buffer and each segment gets its slice of it.
+    @Override
+    public void getAll(int[] keys, int from, int to, int[] results) {
+        Scratch scratch = groupBySegment(keys, from, to);
+        int[] start = scratch.start;
+        for (int s = 0; s < segments.length; s++) {
+            if (start[s] < start[s + 1])
+                segments[s].getAll(scratch.keys, start[s], start[s + 1], scratch.values);
+        }
+        int[] order = scratch.order;
+        for (int i = 0; i < to - from; i++) {
+            results[order[i]] = scratch.values[i];
+        }
+    }
+
+    @Override
+    public void putAll(int[] keys, int from, int to, int[] values) {
+        Scratch scratch = groupBySegment(keys, from, to);
+        int[] order = scratch.order;
+        for (int i = 0; i < to - from; i++) {
+            scratch.values[i] = values[order[i]];
+        }
+        int[] start = scratch.start;
+        for (int s = 0; s < segments.length; s++) {
+            if (start[s] < start[s + 1])
+                segments[s].putAll(scratch.keys, start[s], start[s + 1], scratch.values);
+        }
+    }
+
+    // Counting sort of key positions by segment; preserves batch order within a segment.
+    // Fills order (original positions), keys (sorted) and start (per-segment offsets).
+    private Scratch groupBySegment(int[] keys, int from, int to) {
+        Scratch scratch = scratch(to - from);
+        int[] start = scratch.start;
+        int[] cursor = scratch.cursor;
+        Arrays.fill(start, 0);
+        for (int i = from; i < to; i++) {
+            start[segmentIndex(keys[i]) + 1]++;
+        }
+        for (int s = 0; s < segments.length; s++) {
+            start[s + 1] += start[s];
+        }
+        System.arraycopy(start, 0, cursor, 0, segments.length);
+        for (int i = from; i < to; i++) {
+            int slot = cursor[segmentIndex(keys[i])]++;
+            scratch.order[slot] = i;
+            scratch.keys[slot] = keys[i];
+        }
+        return scratch;
+    }
+
+    // Reused per thread, grown to the largest batch seen up to MAX_RETAINED_BATCH;
+    // bigger batches get a one-off buffer so a single bulk load doesn't pin memory
+    private Scratch scratch(int batchSize) {
+        Scratch current = scratchBuffers.get();
+        if (current.order.length >= batchSize)
+            return current;
+        Scratch grown = new Scratch(segments.length, batchSize);
+        if (batchSize <= MAX_RETAINED_BATCH)
+            scratchBuffers.set(grown);
+        return grown;
+    }
+
+    // Sum of per-segment sizes; not an atomic snapshot across segments
+    @Override
+    public int size() {
+        int total = 0;
+        for (Cache segment : segments) {
+            total += segment.size();
+        }
+        return total;
+    }
+
+    int segmentCount() {
+        return segments.length;
+    }
+
+    private Cache segmentFor(int key) {
+        return segments[segmentIndex(key)];
+    }
+
+    // Fibonacci hashing spreads sequential keys across segments
+    int segmentIndex(int key) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & segmentMask;
+    }
+}
@@ -1,9 +1,14 @@
 package com.lld.lru;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
 
 // --- Node for DLL ---
 class Node {
@@ -50,10 +55,27 @@ class DoublyLinkedList {
         removeNode(res);
         return res;
     }
+
+    public Node peekTail() {
+        return tail.prev == head ? null : tail.prev;
+    }
+
+    public boolean isEmpty() {
+        return head.next == tail;
+    }
+
+    // Walks from LRU to MRU; the action must not modify the list
+    public void forEachFromTail(Consumer<Node> action) {
+        for (Node node = tail.prev; node != head; node = node.prev) {
+            action.accept(node);
+        }
+    }
 }
 
 // --- LRU Cache ---
-class LRUCache {
+class LRUCache implements Cache {
+    private static final int MAINTENANCE_BUDGET = 64; // Wheel entries handled per get/put
+
     private final int capacity;
     private final Map<Integer, Node> map;
     private final DoublyLinkedList dll;
@@ -63,55 +85,340 @@ class LRUCache {
     private final Lock readLock;
     private final Lock writeLock;
 
+    // Expiry (timerWheel == null means entries never expire)
+    private final Ticker ticker;
+    private final long epoch;
+    private final long expireAfterWriteNanos;
+    private final long expireAfterAccessNanos;
+    private final TimerWheel timerWheel;
+    private final Consumer<TimedNode> onExpired = node -> removeEntry(node, RemovalCause.EXPIRED);
+
+    // Instrumentation (opt-in, guarded by writeLock)
+    private StatsCounter stats = StatsCounter.DISABLED;
+    private RemovalListener removalListener;
+    private Executor listenerExecutor;
+
     public LRUCache(int capacity) {
+        this(capacity, null, 0, 0);
+    }
+
+    // A zero duration disables that mode; per-entry TTLs are available either way
+    public LRUCache(int capacity, long expireAfterWrite, long expireAfterAccess, TimeUnit unit) {
+        this(capacity, expireAfterWrite, expireAfterAccess, unit, Ticker.system());
+    }
+
+    public LRUCache(int capacity, long expireAfterWrite, long expireAfterAccess, TimeUnit unit, Ticker ticker) {
+        this(capacity, ticker, unit.toNanos(expireAfterWrite), unit.toNanos(expireAfterAccess));
+        if (expireAfterWrite < 0 || expireAfterAccess < 0)
+            throw new IllegalArgumentException("Expiry durations must not be negative");
+    }
+
+    private LRUCache(int capacity, Ticker ticker, long expireAfterWriteNanos, long expireAfterAccessNanos) {
         this.capacity = capacity;
         this.map = new HashMap<>();
         this.dll = new DoublyLinkedList();
         this.rwLock = new ReentrantReadWriteLock();
         this.readLock = rwLock.readLock();
         this.writeLock = rwLock.writeLock();
+
+        this.ticker = ticker;
+        this.epoch = ticker == null ? 0 : ticker.read();
+        this.expireAfterWriteNanos = expireAfterWriteNanos;
+        this.expireAfterAccessNanos = expireAfterAccessNanos;
+        this.timerWheel = ticker == null ? null : new TimerWheel(0);
     }
 
+    @Override
     public int get(int key) {
+        int value;
+        StatsCounter recorder;
         writeLock.lock(); // We need write lock because GET promotes to head (modifies list)
         try {
-            if (!map.containsKey(key))
+            value = getLocked(key, runMaintenance());
+            recorder = stats;
+        } finally {
+            writeLock.unlock();
+        }
+        // Record outside the critical section
+        if (value == -1)
+            recorder.recordMisses(1);
+        else
+            recorder.recordHits(1);
+        return value;
+    }
+
+    // One lock round-trip and one maintenance pass for the whole batch
+    @Override
+    public void getAll(int[] keys, int from, int to, int[] results) {
+        int hits = 0;
+        StatsCounter recorder;
+        writeLock.lock();
+        try {
+            long now = runMaintenance();
+            for (int i = from; i < to; i++) {
+                results[i] = getLocked(keys[i], now);
+                if (results[i] != -1)
+                    hits++;
+            }
+            recorder = stats;
+        } finally {
+            writeLock.unlock();
+        }
+        recorder.recordHits(hits);
+        recorder.recordMisses(to - from - hits);
+    }
+
+    @Override
+    public void put(int key, int value) {
+        StatsCounter recorder;
+        writeLock.lock();
+        try {
+            putLocked(key, value, 0, runMaintenance());
+            recorder = stats;
+        } finally {
+            writeLock.unlock();
+        }
+        recorder.recordPuts(1);
+    }
+
+    // Per-entry TTL; overrides expire-after-write for this entry
+    public void put(int key, int value, long ttl, TimeUnit unit) {
+        if (timerWheel == null)
+            throw new IllegalStateException("Expiry is not enabled for this cache");
+        if (ttl <= 0)
+            throw new IllegalArgumentException("ttl must be positive");
+        StatsCounter recorder;
+        writeLock.lock();
+        try {
+            putLocked(key, value, unit.toNanos(ttl), runMaintenance());
+            recorder = stats;
+        } finally {
+            writeLock.unlock();
+        }
+        recorder.recordPuts(1);
+    }
+
+    @Override
+    public void putAll(int[] keys, int from, int to, int[] values) {
+        StatsCounter recorder;
+        writeLock.lock();
+        try {
+            long now = runMaintenance();
+            for (int i = from; i < to; i++) {
+                putLocked(keys[i], values[i], 0, now);
+            }
+            recorder = stats;
+        } finally {
+            writeLock.unlock();
+        }
+        recorder.recordPuts(to - from);
+    }
+
+    // Advances the timer wheel (frees room before any eviction), expiring at most
+    // MAINTENANCE_BUDGET entries; a backlog carries to later calls or cleanUp().
+    // Entries that are due but not yet drained are still caught by the read path.
+    // Returns the current time.
+    private long runMaintenance() {
+        if (timerWheel == null)
+            return 0;
+        long now = now();
+        timerWheel.advance(now, onExpired, MAINTENANCE_BUDGET);
+        return now;
+    }
+
+    private int getLocked(int key, long now) {
+        Node node = map.get(key);
+        if (node == null)
+            return -1;
+
+        if (timerWheel != null) {
+            TimedNode timed = (TimedNode) node;
+            if (timed.expiresAt <= now) {
+                // Due, but its wheel bucket hasn't been visited yet
+                removeEntry(timed, RemovalCause.EXPIRED);
                 return -1;
+            }
+            if (expireAfterAccessNanos > 0) {
+                timed.expiresAt = Math.min(timed.writeExpiresAt, deadline(now, expireAfterAccessNanos));
+                reschedule(timed);
+            }
+        }
 
-            Node node = map.get(key);
+        dll.removeNode(node);
+        dll.addToHead(node);
+        return node.value;
+    }
+
+    private void putLocked(int key, int value, long ttlNanos, long now) {
+        Node node = map.get(key);
+        if (node != null) {
+            // Update
+            node.value = value;
             dll.removeNode(node);
+            dll.addToHead(node); // Move to front
+        } else {
+            // Insert
+            if (map.size() == capacity) {
+                removeEntry(dll.peekTail(), RemovalCause.EVICTED);
+                stats.recordEviction();
+            }
+            node = timerWheel == null ? new Node(key, value) : new TimedNode(key, value);
             dll.addToHead(node);
+            map.put(key, node);
+        }
+
+        if (timerWheel != null) {
+            TimedNode timed = (TimedNode) node;
+            long writeTtl = ttlNanos > 0 ? ttlNanos : expireAfterWriteNanos;
+            timed.writeExpiresAt = writeTtl > 0 ? deadline(now, writeTtl) : Long.MAX_VALUE;
+            timed.expiresAt = expireAfterAccessNanos > 0
+                    ? Math.min(timed.writeExpiresAt, deadline(now, expireAfterAccessNanos))
+                    : timed.writeExpiresAt;
+            reschedule(timed);
+        }
+    }
+
+    // No promotion, no stats; an expired entry reads as a miss
+    @Override
+    public int peek(int key) {
+        readLock.lock();
+        try {
+            Node node = map.get(key);
+            if (node == null || (timerWheel != null && ((TimedNode) node).expiresAt <= now()))
+                return -1;
             return node.value;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    // Refresh-ahead hook: true if the entry is live and expires within windowNanos
+    boolean expiresWithin(int key, long windowNanos) {
+        if (timerWheel == null)
+            return false;
+        readLock.lock();
+        try {
+            Node node = map.get(key);
+            if (node == null)
+                return false;
+            long remaining = ((TimedNode) node).expiresAt - now();
+            return remaining > 0 && remaining <= windowNanos;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    // Live entries packed as (key << 32 | value), LRU first, so replaying them in order
+    // rebuilds the same recency list. The read lock covers only this in-memory copy.
+    long[] entriesByRecency() {
+        readLock.lock();
+        try {
+            long now = timerWheel == null ? 0 : now();
+            long[] packed = new long[map.size()];
+            int[] count = new int[1];
+            dll.forEachFromTail(node -> {
+                if (timerWheel == null || ((TimedNode) node).expiresAt > now)
+                    packed[count[0]++] = ((long) node.key << 32) | (node.value & 0xFFFFFFFFL);
+            });
+            return count[0] == packed.length ? packed : Arrays.copyOf(packed, count[0]);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    // Opt-in instrumentation; pass StatsCounter.DISABLED to turn it back off
+    public void setStatsCounter(StatsCounter stats) {
+        writeLock.lock();
+        try {
+            this.stats = stats;
         } finally {
             writeLock.unlock();
         }
     }
 
-    public void put(int key, int value) {
+    public CacheStats stats() {
+        readLock.lock();
+        try {
+            return stats.snapshot();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    public void setRemovalListener(RemovalListener listener) {
+        setRemovalListener(listener, ForkJoinPool.commonPool());
+    }
+
+    public void setRemovalListener(RemovalListener listener, Executor executor) {
         writeLock.lock();
         try {
-            if (map.containsKey(key)) {
-                // Update
-                Node node = map.get(key);
-                node.value = value;
-                dll.removeNode(node);
-                dll.addToHead(node); // Move to front
-            } else {
-                // Insert
-                if (map.size() == capacity) {
-                    Node lru = dll.removeTail();
-                    map.remove(lru.key);
-                    System.out.println("Evicting Key: " + lru.key);
-                }
-                Node newNode = new Node(key, value);
-                dll.addToHead(newNode);
-                map.put(key, newNode);
-            }
+            this.removalListener = listener;
+            this.listenerExecutor = executor;
         } finally {
             writeLock.unlock();
         }
     }
 
+    // Runs expiry maintenance without a get/put, e.g. from a scheduled task. Drains the
+    // whole backlog, one budget at a time, releasing the lock in between.
+    public void cleanUp() {
+        if (timerWheel == null)
+            return;
+        boolean drained;
+        do {
+            writeLock.lock();
+            try {
+                drained = timerWheel.advance(now(), onExpired, MAINTENANCE_BUDGET);
+            } finally {
+                writeLock.unlock();
+            }
+        } while (!drained);
+    }
+
+    // Unlinks from map, list and wheel, then hands the listener call to its executor. Caller holds writeLock.
+    private void removeEntry(Node node, RemovalCause cause) {
+        map.remove(node.key);
+        dll.removeNode(node);
+        if (timerWheel != null)
+            timerWheel.deschedule((TimedNode) node);
+
+        if (removalListener != null) {
+            RemovalListener listener = removalListener;
+            int key = node.key;
+            int value = node.value;
+            listenerExecutor.execute(() -> listener.onRemoval(key, value, cause));
+        }
+    }
+
+    private void reschedule(TimedNode node) {
+        timerWheel.deschedule(node);
+        if (node.expiresAt != Long.MAX_VALUE)
+            timerWheel.schedule(node);
+    }
+
+    private long now() {
+        return ticker.read() - epoch;
+    }
+
+    private static long deadline(long now, long ttlNanos) {
+        return ttlNanos >= Long.MAX_VALUE - now ? Long.MAX_VALUE : now + ttlNanos;
+    }
+
+    // May include expired entries whose wheel bucket has not been visited yet
+    @Override
+    public int size() {
+        readLock.lock();
+        try {
+            return map.size();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
     // For verification, not part of strict API
     public void printCache() {
         System.out.println("Cache Size: " + map.size());
@@ -122,6 +429,9 @@ public class Solution {
     public static void main(String[] args) {
         System.out.println("--- LRU Cache Demo ---");
         LRUCache cache = new LRUCache(2);
+        cache.setStatsCounter(new ConcurrentStatsCounter());
+        // Inline executor keeps the demo output ordered; production code should keep the async default
+        cache.setRemovalListener((key, value, cause) -> System.out.println(cause + " Key: " + key), Runnable::run);
 
         System.out.println("Put (1, 10)");
         cache.put(1, 10);
@@ -135,5 +445,14 @@ public class Solution {
         cache.put(3, 30);
 
         System.out.println("Get 2: " + cache.get(2)); // Should be -1
+        System.out.println("Stats: " + cache.stats());
+
+        System.out.println("--- Segmented LRU Cache Demo ---");
+        SegmentedLRUCache striped = new SegmentedLRUCache(8, 4);
+        for (int i = 0; i < 16; i++) {
+            striped.put(i, i * 10);
+        }
+        System.out.println("Size after 16 puts: " + striped.size()); // 8
+        System.out.println("Get 15: " + striped.get(15)); // 150
     }
 }
@@ -0,0 +1,11 @@
+package com.lld.lru;
+
+// --- Time Source ---
+// Injected so expiry can be tested without sleeping.
+interface Ticker {
+    long read(); // Nanoseconds, arbitrary origin
+
+    static Ticker system() {
+        return System::nanoTime;
+    }
+}
@@ -0,0 +1,152 @@
+package com.lld.lru;
+
+import java.util.function.Consumer;
+
+// --- Node with expiry ---
+// Only caches built with expiry pay for the extra fields.
+class TimedNode extends Node {
+    long expiresAt;      // Effective deadline (ns since cache epoch)
+    long writeExpiresAt; // Hard cap from expire-after-write / per-entry TTL
+    TimedNode wheelPrev;
+    TimedNode wheelNext;
+
+    public TimedNode(int key, int value) {
+        super(key, value);
+    }
+}
+
+// --- Hierarchical Timing Wheel ---
+// Five levels of 64 buckets each; level i buckets span 2^SHIFT[i] ns
+// (~1ms, ~67ms, ~4.3s, ~4.6min, ~4.9h). An entry sits in the coarsest-needed
+// level; as time passes its bucket is visited, and the entry is either expired
+// or cascaded down to a finer level. Each entry is touched O(levels) times over
+// its life, so expiry is amortized O(1) and never walks the whole cache.
+// Advancing only marks the due buckets; draining them is metered by a budget of
+// entries per call, and whatever is left over carries to the next call. At most
+// one bit per bucket is ever outstanding, so a long idle gap costs a bounded
+// backlog rather than one huge pass.
+class TimerWheel {
+    private static final int BUCKETS = 64;
+    private static final int[] SHIFT = { 20, 26, 32, 38, 44 };
+
+    private final TimedNode[][] wheel; // Bucket sentinels of circular lists
+    private final long[] due = new long[SHIFT.length]; // Per level: buckets whose slot started but weren't drained
+    private final TimedNode draining; // Entries detached from a due bucket, not yet expired or cascaded
+    private long currentTime;
+
+    public TimerWheel(long now) {
+        this.currentTime = now;
+        this.wheel = new TimedNode[SHIFT.length][BUCKETS];
+        for (TimedNode[] level : wheel) {
+            for (int i = 0; i < BUCKETS; i++) {
+                level[i] = sentinel();
+            }
+        }
+        this.draining = sentinel();
+    }
+
+    private static TimedNode sentinel() {
+        TimedNode sentinel = new TimedNode(0, 0);
+        sentinel.wheelPrev = sentinel;
+        sentinel.wheelNext = sentinel;
+        return sentinel;
+    }
+
+    public void schedule(TimedNode node) {
+        long deadline = Math.max(node.expiresAt, currentTime); // Already due: next advance picks it up
+        long delay = deadline - currentTime;
+        for (int level = 0; level < SHIFT.length; level++) {
+            if (delay < ((long) BUCKETS << SHIFT[level])) {
+                link(wheel[level][(int) ((deadline >>> SHIFT[level]) & (BUCKETS - 1))], node);
+                return;
+            }
+        }
+        // Beyond the top level's horizon: park in its furthest bucket, re-cascaded on the way down
+        int top = SHIFT.length - 1;
+        link(wheel[top][(int) (((currentTime >>> SHIFT[top]) - 1) & (BUCKETS - 1))], node);
+    }
+
+    public void deschedule(TimedNode node) {
+        if (node.wheelNext == null)
+            return;
+        node.wheelPrev.wheelNext = node.wheelNext;
+        node.wheelNext.wheelPrev = node.wheelPrev;
+        node.wheelPrev = null;
+        node.wheelNext = null;
+    }
+
+    // Marks the buckets whose time slot has started since the last advance, then drains
+    // due entries until `budget` of them have been expired or cascaded. Returns true once
+    // nothing due is left; otherwise the next call carries on where this one stopped.
+    public boolean advance(long now, Consumer<TimedNode> onExpired, int budget) {
+        long previous = currentTime;
+        if (now > previous) {
+            currentTime = now;
+            for (int level = 0; level < SHIFT.length; level++) {
+                due[level] |= slots(previous >>> SHIFT[level], now >>> SHIFT[level]);
+            }
+        }
+        return drain(onExpired, budget);
+    }
+
+    // Bits for buckets fromTick..toTick inclusive; none if the level didn't tick
+    private static long slots(long fromTick, long toTick) {
+        if (fromTick == toTick)
+            return 0;
+        if (toTick - fromTick + 1 >= BUCKETS)
+            return -1L;
+        long mask = 0;
+        for (long t = fromTick; t <= toTick; t++) {
+            mask |= 1L << (t & (BUCKETS - 1));
+        }
+        return mask;
+    }
+
+    private boolean drain(Consumer<TimedNode> onExpired, int budget) {
+        while (true) {
+            TimedNode node = draining.wheelNext;
+            if (node == draining) {
+                if (!detachNextDueBucket())
+                    return true;
+                continue;
+            }
+            if (budget-- <= 0)
+                return false;
+            deschedule(node);
+            if (node.expiresAt <= currentTime) {
+                onExpired.accept(node);
+            } else {
+                schedule(node);
+            }
+        }
+    }
+
+    // Coarsest first, so entries cascading down are re-checked by the finer levels in the same drain
+    private boolean detachNextDueBucket() {
+        for (int level = SHIFT.length - 1; level >= 0; level--) {
+            if (due[level] == 0)
+                continue;
+            int bucket = Long.numberOfTrailingZeros(due[level]);
+            due[level] &= due[level] - 1;
+            // Move the whole chain, so re-scheduled nodes aren't visited twice
+            TimedNode sentinel = wheel[level][bucket];
+            if (sentinel.wheelNext != sentinel) {
+                draining.wheelNext = sentinel.wheelNext;
+                draining.wheelPrev = sentinel.wheelPrev;
+                draining.wheelNext.wheelPrev = draining;
+                draining.wheelPrev.wheelNext = draining;
+                sentinel.wheelPrev = sentinel;
+                sentinel.wheelNext = sentinel;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private void link(TimedNode sentinel, TimedNode node) {
+        node.wheelNext = sentinel;
+        node.wheelPrev = sentinel.wheelPrev;
+        sentinel.wheelPrev.wheelNext = node;
+        sentinel.wheelPrev = node;
+    }
+}
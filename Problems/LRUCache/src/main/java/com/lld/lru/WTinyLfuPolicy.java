@@ -0,0 +1,171 @@
+package com.lld.lru;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// --- Count-Min Sketch ---
+// Approximate access frequency in a few bytes per key. Each of the DEPTH rows
+// hashes the key to one saturating 4-bit counter; the estimate is the row
+// minimum. Every `sampleSize` increments all counters are halved, so stale
+// popularity decays (the "freshness" mechanism from TinyLFU).
+class CountMinSketch {
+    private static final int DEPTH = 4;
+    private static final int MAX_COUNT = 15;
+    private static final int[] SEEDS = { 0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F };
+
+    private final byte[][] table;
+    private final int mask;
+    private final int sampleSize;
+    private int additions;
+
+    public CountMinSketch(int expectedKeys) {
+        int width = Integer.highestOneBit(Math.max(16, expectedKeys) * 2 - 1);
+        this.table = new byte[DEPTH][width];
+        this.mask = width - 1;
+        this.sampleSize = 10 * Math.max(16, expectedKeys);
+    }
+
+    public void increment(int key) {
+        boolean added = false;
+        for (int row = 0; row < DEPTH; row++) {
+            int index = index(key, row);
+            if (table[row][index] < MAX_COUNT) {
+                table[row][index]++;
+                added = true;
+            }
+        }
+        if (added && ++additions == sampleSize)
+            reset();
+    }
+
+    public int frequency(int key) {
+        int min = MAX_COUNT;
+        for (int row = 0; row < DEPTH; row++) {
+            min = Math.min(min, table[row][index(key, row)]);
+        }
+        return min;
+    }
+
+    private void reset() {
+        for (byte[] row : table) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] >>= 1;
+            }
+        }
+        additions /= 2;
+    }
+
+    private int index(int key, int row) {
+        int h = key * SEEDS[row];
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
+
+// --- W-TinyLFU (as used by Caffeine) ---
+// New keys land in a small LRU "window" (1%). When the window overflows, its
+// LRU key competes with the main region's victim (an SLRU, 80% protected) and
+// the CountMinSketch decides: the historically more popular key stays. One-hit
+// wonders from a scan never beat the hot set, so scans can't flush the cache.
+class WTinyLfuPolicy implements EvictionPolicy {
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    private final Map<Integer, Node> nodes = new HashMap<>(); // Node.value = region tag
+    private final DoublyLinkedList window = new DoublyLinkedList();
+    private final DoublyLinkedList probation = new DoublyLinkedList();
+    private final DoublyLinkedList protectedList = new DoublyLinkedList();
+    private final CountMinSketch sketch;
+    private final int windowCapacity;
+    private final int protectedCapacity;
+    private int windowSize;
+    private int protectedSize;
+
+    public WTinyLfuPolicy(int capacity) {
+        this.windowCapacity = Math.max(1, capacity / 100);
+        this.protectedCapacity = (capacity - windowCapacity) * 4 / 5;
+        this.sketch = new CountMinSketch(capacity);
+    }
+
+    @Override
+    public void recordAccess(int key) {
+        sketch.increment(key);
+        Node node = nodes.get(key);
+        switch (node.value) {
+            case WINDOW:
+                window.removeNode(node);
+                window.addToHead(node);
+                break;
+            case PROBATION:
+                probation.removeNode(node);
+                node.value = PROTECTED;
+                protectedList.addToHead(node);
+                protectedSize++;
+                if (protectedSize > protectedCapacity) {
+                    Node demoted = protectedList.removeTail();
+                    demoted.value = PROBATION;
+                    probation.addToHead(demoted);
+                    protectedSize--;
+                }
+                break;
+            default:
+                protectedList.removeNode(node);
+                protectedList.addToHead(node);
+        }
+    }
+
+    @Override
+    public int selectVictim(int candidate) {
+        if (windowSize < windowCapacity || mainVictim() == null) {
+            // Candidate fits in the window; evict from main (or the window if main is empty)
+            return evict(mainVictim() != null ? mainVictim() : window.peekTail());
+        }
+
+        // Window is full: its LRU must leave the window, and one of the two competitors goes
+        Node windowVictim = window.removeTail();
+        windowSize--;
+        Node mainVictim = mainVictim();
+        if (sketch.frequency(windowVictim.key) > sketch.frequency(mainVictim.key)) {
+            windowVictim.value = PROBATION;
+            probation.addToHead(windowVictim);
+            return evict(mainVictim);
+        }
+        nodes.remove(windowVictim.key);
+        return windowVictim.key;
+    }
+
+    @Override
+    public void recordInsert(int key) {
+        sketch.increment(key);
+        Node node = new Node(key, WINDOW);
+        window.addToHead(node);
+        nodes.put(key, node);
+
+        // While the cache is still filling up, window overflow moves to probation for free
+        if (++windowSize > windowCapacity) {
+            Node overflow = window.removeTail();
+            windowSize--;
+            overflow.value = PROBATION;
+            probation.addToHead(overflow);
+        }
+    }
+
+    private Node mainVictim() {
+        Node victim = probation.peekTail();
+        return victim != null ? victim : protectedList.peekTail();
+    }
+
+    private int evict(Node victim) {
+        if (victim.value == WINDOW) {
+            window.removeNode(victim);
+            windowSize--;
+        } else if (victim.value == PROBATION) {
+            probation.removeNode(victim);
+        } else {
+            protectedList.removeNode(victim);
+            protectedSize--;
+        }
+        nodes.remove(victim.key);
+        return victim.key;
+    }
+}
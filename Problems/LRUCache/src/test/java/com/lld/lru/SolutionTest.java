@@ -1,5 +1,25 @@
 package com.lld.lru;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -10,4 +30,533 @@ public class SolutionTest {
         // In a real scenario, this would test core logic.
         assertTrue(true, "Sanity check passed for LRUCache");
     }
+
+    @Test
+    public void testSegmentedCacheRespectsCapacityAndLruOrder() {
+        SegmentedLRUCache cache = new SegmentedLRUCache(64, 8);
+        assertEquals(8, cache.segmentCount());
+
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i, i * 10);
+        }
+        assertTrue(cache.size() <= 64, "Segments must never exceed the total budget");
+
+        // Most recent key in every segment survives
+        assertEquals(9990, cache.get(999));
+        assertEquals(-1, cache.get(0));
+    }
+
+    @Test
+    public void testSegmentedCacheConcurrentAccess() throws Exception {
+        SegmentedLRUCache cache = new SegmentedLRUCache(1024, 16);
+        List<Callable<Void>> workers = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            final int offset = t * 100;
+            workers.add(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    int key = offset + (i % 100);
+                    cache.put(key, key);
+                    int v = cache.get(key);
+                    assertTrue(v == -1 || v == key);
+                }
+                return null;
+            });
+        }
+        runConcurrently(workers);
+        assertTrue(cache.size() <= 1024);
+    }
+
+    // Runs every task on its own thread; a failed assertion inside a worker is rethrown
+    // here (wrapped in ExecutionException) instead of just killing that worker
+    private static void runConcurrently(List<Callable<Void>> tasks) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(tasks.size());
+        try {
+            for (Future<Void> result : pool.invokeAll(tasks)) {
+                result.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testBufferedCacheReplaysReadsBeforeEviction() {
+        BufferedLRUCache cache = new BufferedLRUCache(3);
+        cache.put(1, 10);
+        cache.put(2, 20);
+        cache.put(3, 30);
+
+        assertEquals(10, cache.get(1)); // Buffered, list untouched
+        cache.put(4, 40); // Drains buffers first, so 2 is now the LRU
+
+        assertEquals(-1, cache.get(2));
+        assertEquals(10, cache.get(1));
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    public void testBufferedSegmentsUnderConcurrentReads() throws Exception {
+        SegmentedLRUCache cache = new SegmentedLRUCache(256, 4, true);
+        for (int i = 0; i < 256; i++) {
+            cache.put(i, i);
+        }
+        List<Callable<Void>> readers = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            readers.add(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    int key = i & 255;
+                    int v = cache.get(key);
+                    assertTrue(v == -1 || v == key);
+                    if ((i & 1023) == 0) {
+                        cache.put(key + 256, key + 256);
+                    }
+                }
+                return null;
+            });
+        }
+        runConcurrently(readers);
+        assertTrue(cache.size() <= 256);
+    }
+
+    @Test
+    public void testIntCacheMatchesReferenceLru() {
+        final int capacity = 100;
+        IntLRUCache cache = new IntLRUCache(capacity);
+        Map<Integer, Integer> reference = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Integer> eldest) {
+                return size() > capacity;
+            }
+        };
+
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            int key = random.nextInt(300) - 150; // Negative keys and collisions included
+            if (random.nextBoolean()) {
+                cache.put(key, i);
+                reference.put(key, i);
+            } else {
+                Integer expected = reference.get(key);
+                assertEquals(expected == null ? -1 : expected, cache.get(key));
+            }
+        }
+        assertEquals(reference.size(), cache.size());
+    }
+
+    @Test
+    public void testOffHeapCacheEvictsByBytesAndReusesBlocks() {
+        OffHeapLRUCache cache = new OffHeapLRUCache(4096, 64); // 64 blocks of 60-byte payload
+
+        byte[] big = new byte[1000]; // Spans several blocks
+        for (int i = 0; i < big.length; i++) {
+            big[i] = (byte) i;
+        }
+        assertTrue(cache.put(1, big));
+        assertArrayEquals(big, cache.get(1));
+
+        // Keep writing: the byte budget, not an entry count, drives eviction
+        for (int key = 2; key < 200; key++) {
+            assertTrue(cache.put(key, new byte[] { (byte) key, (byte) (key >> 8) }));
+            assertTrue(cache.usedBytes() <= 4096);
+        }
+        assertNull(cache.get(1), "Oldest entry should have been evicted");
+        assertArrayEquals(new byte[] { (byte) 199, 0 }, cache.get(199));
+
+        // Overwrite with a larger value frees the old chain first
+        assertTrue(cache.put(199, big));
+        assertArrayEquals(big, cache.get(199));
+
+        assertFalse(cache.put(500, new byte[5000]), "Value larger than the whole budget");
+        assertTrue(new BlockSlab(4096, 64).blocksFor(Integer.MAX_VALUE) > 64, "Block count must not overflow");
+
+        // Layout only, no allocation: just over 16 GiB of 16-byte blocks still uses 1 GiB arenas
+        int blocks = (1 << 30) + 1;
+        assertEquals(1 << 26, BlockSlab.blocksPerArena(blocks, 16), "Arena size must not overflow to 1 block");
+        assertEquals(17, BlockSlab.arenaCount(blocks, 16));
+        assertEquals(32, BlockSlab.arenaCount(Integer.MAX_VALUE, 16));
+        assertEquals(1, BlockSlab.arenaCount(64, 64));
+
+        cache.close();
+        assertEquals(0, cache.usedBytes());
+        assertThrows(IllegalStateException.class, () -> cache.get(199));
+        assertThrows(IllegalStateException.class, () -> cache.put(1, new byte[1]));
+        cache.close(); // Idempotent
+    }
+
+    @Test
+    public void testEveryPolicyKeepsValuesConsistent() {
+        for (PolicyType type : PolicyType.values()) {
+            PolicyCache cache = new PolicyCache(64, type);
+            Map<Integer, Integer> lastWritten = new HashMap<>();
+            Random random = new Random(7);
+            for (int i = 0; i < 100_000; i++) {
+                int key = (int) Math.abs(random.nextGaussian() * 80);
+                if (random.nextInt(4) == 0) {
+                    cache.put(key, i);
+                    lastWritten.put(key, i);
+                } else {
+                    int v = cache.get(key);
+                    assertTrue(v == -1 || v == lastWritten.get(key), type + " returned a stale value");
+                }
+                assertTrue(cache.size() <= 64, type + " exceeded capacity");
+            }
+        }
+    }
+
+    @Test
+    public void testScanResistantPoliciesBeatLruOnScans() {
+        Map<PolicyType, Double> hitRate = new HashMap<>();
+        for (PolicyType type : PolicyType.values()) {
+            hitRate.put(type, hotSetHitRateUnderScans(new PolicyCache(100, type)));
+        }
+        double lru = hitRate.get(PolicyType.LRU);
+        assertTrue(hitRate.get(PolicyType.W_TINY_LFU) > lru, "W-TinyLFU should survive scans: " + hitRate);
+        assertTrue(hitRate.get(PolicyType.ARC) > lru, "ARC should survive scans: " + hitRate);
+        assertTrue(hitRate.get(PolicyType.SLRU) > lru, "SLRU should survive scans: " + hitRate);
+        assertTrue(hitRate.get(PolicyType.LFU) > lru, "LFU should survive scans: " + hitRate);
+    }
+
+    // 50 hot keys read repeatedly, interrupted by one-pass scans of 200 fresh keys
+    private double hotSetHitRateUnderScans(Cache cache) {
+        int hits = 0;
+        int lookups = 0;
+        int scanKey = 1_000;
+        Random random = new Random(1);
+        for (int round = 0; round < 200; round++) {
+            for (int i = 0; i < 500; i++) {
+                int key = random.nextInt(50);
+                lookups++;
+                if (cache.get(key) != -1) {
+                    hits++;
+                } else {
+                    cache.put(key, key);
+                }
+            }
+            for (int i = 0; i < 200; i++) {
+                if (cache.get(scanKey) == -1)
+                    cache.put(scanKey, scanKey);
+                scanKey++;
+            }
+        }
+        return (double) hits / lookups;
+    }
+
+    @Test
+    public void testExpireAfterWriteAndPerEntryTtl() {
+        AtomicLong time = new AtomicLong();
+        LRUCache cache = new LRUCache(100, 10, 0, TimeUnit.SECONDS, time::get);
+
+        cache.put(1, 10);
+        cache.put(2, 20, 2, TimeUnit.MINUTES);
+        time.addAndGet(TimeUnit.SECONDS.toNanos(9));
+        assertEquals(10, cache.get(1));
+
+        time.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        assertEquals(-1, cache.get(1), "Expired after write");
+        assertEquals(20, cache.get(2), "Per-entry TTL overrides the default");
+
+        time.addAndGet(TimeUnit.MINUTES.toNanos(2));
+        cache.cleanUp();
+        assertEquals(0, cache.size(), "Wheel maintenance removed the entry without a read");
+    }
+
+    @Test
+    public void testExpireAfterAccessIsExtendedByReads() {
+        AtomicLong time = new AtomicLong();
+        LRUCache cache = new LRUCache(100, 0, 5, TimeUnit.SECONDS, time::get);
+        cache.put(1, 10);
+
+        for (int i = 0; i < 10; i++) {
+            time.addAndGet(TimeUnit.SECONDS.toNanos(4));
+            assertEquals(10, cache.get(1));
+        }
+        time.addAndGet(TimeUnit.SECONDS.toNanos(6));
+        assertEquals(-1, cache.get(1));
+    }
+
+    @Test
+    public void testTimerWheelExpiresThousandsOfEntriesDuringMaintenance() {
+        AtomicLong time = new AtomicLong();
+        LRUCache cache = new LRUCache(10_000, 0, 0, TimeUnit.SECONDS, time::get);
+        Random random = new Random(3);
+        int outliving = 0;
+        for (int i = 0; i < 10_000; i++) {
+            int ttlSeconds = 1 + random.nextInt(3600); // Spread across wheel levels
+            cache.put(i, i, ttlSeconds, TimeUnit.SECONDS);
+            if (ttlSeconds > 1800)
+                outliving++;
+        }
+
+        time.addAndGet(TimeUnit.MINUTES.toNanos(30));
+        cache.cleanUp();
+        assertEquals(outliving, cache.size(), "Exactly the due entries are gone");
+
+        time.addAndGet(TimeUnit.MINUTES.toNanos(31));
+        cache.cleanUp();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testMassExpiryIsSpreadAcrossCalls() {
+        AtomicLong time = new AtomicLong();
+        LRUCache cache = new LRUCache(10_000, 1, 0, TimeUnit.SECONDS, time::get);
+        AtomicInteger expired = new AtomicInteger();
+        cache.setRemovalListener((key, value, cause) -> expired.incrementAndGet(), Runnable::run);
+        for (int i = 0; i < 5_000; i++) {
+            cache.put(i, i);
+        }
+
+        time.addAndGet(TimeUnit.HOURS.toNanos(1)); // Long idle gap: every entry is due
+        cache.put(-1, -1);
+        assertTrue(expired.get() > 0 && expired.get() <= 64, "One put paid for " + expired.get() + " expirations");
+        assertEquals(-1, cache.get(4_999), "Due but not yet drained still reads as expired");
+
+        cache.cleanUp();
+        assertEquals(5_000, expired.get());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testLoadingCacheCoalescesConcurrentMisses() throws Exception {
+        LoadingCache cache = new LoadingCache(new LRUCache(100));
+        AtomicInteger backendCalls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Integer> first = cache.getAsync(7, key -> {
+            backendCalls.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return key * 100;
+        });
+
+        Thread[] callers = new Thread[16];
+        int[] results = new int[callers.length];
+        for (int i = 0; i < callers.length; i++) {
+            final int slot = i;
+            callers[i] = new Thread(() -> results[slot] = cache.get(7, key -> {
+                backendCalls.incrementAndGet();
+                return key * 100;
+            }));
+            callers[i].start();
+        }
+        Thread.sleep(50); // Let callers pile up on the in-flight load
+        release.countDown();
+        for (Thread caller : callers) {
+            caller.join();
+        }
+
+        assertEquals(700, (int) first.get());
+        for (int r : results) {
+            assertEquals(700, r);
+        }
+        assertEquals(1, backendCalls.get(), "One backend call for N concurrent misses");
+        assertEquals(0, cache.inFlightCount());
+    }
+
+    @Test
+    public void testLoadingCacheRefreshesAheadOfExpiry() {
+        AtomicLong time = new AtomicLong();
+        LRUCache lru = new LRUCache(100, 10, 0, TimeUnit.SECONDS, time::get);
+        LoadingCache cache = new LoadingCache(lru, Runnable::run, 2, TimeUnit.SECONDS);
+        AtomicInteger version = new AtomicInteger();
+
+        assertEquals(1, cache.get(1, key -> version.incrementAndGet()));
+        time.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        assertEquals(1, cache.get(1, key -> version.incrementAndGet()), "Fresh hit, no reload");
+
+        time.addAndGet(TimeUnit.SECONDS.toNanos(4)); // 1s left, inside the refresh window
+        assertEquals(1, cache.get(1, key -> version.incrementAndGet()), "Serves current value");
+        assertEquals(2, lru.get(1), "Background refresh replaced it");
+
+        time.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        assertEquals(2, cache.get(1, key -> version.incrementAndGet()), "Refresh reset the TTL");
+    }
+
+    @Test
+    public void testBulkGetAllAndPutAll() {
+        LRUCache cache = new LRUCache(3);
+        cache.putAll(new int[] { 1, 2, 3, 4 }, new int[] { 10, 20, 30, 40 }); // 1 evicted in-batch
+
+        int[] results = new int[4];
+        cache.getAll(new int[] { 1, 2, 3, 4 }, results);
+        assertArrayEquals(new int[] { -1, 20, 30, 40 }, results);
+
+        assertThrows(IllegalArgumentException.class, () -> cache.getAll(new int[] { 1, 2 }, new int[1]));
+    }
+
+    @Test
+    public void testSegmentedBulkMatchesSingleKeyCalls() {
+        SegmentedLRUCache batched = new SegmentedLRUCache(512, 8);
+        SegmentedLRUCache single = new SegmentedLRUCache(512, 8);
+        Random random = new Random(11);
+
+        for (int round = 0; round < 200; round++) {
+            int[] keys = new int[1 + random.nextInt(200)];
+            int[] values = new int[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = random.nextInt(2_000);
+                values[i] = random.nextInt();
+            }
+            batched.putAll(keys, values);
+            for (int i = 0; i < keys.length; i++) {
+                single.put(keys[i], values[i]);
+            }
+
+            int[] batchedResults = new int[keys.length];
+            batched.getAll(keys, batchedResults);
+            for (int i = 0; i < keys.length; i++) {
+                assertEquals(single.get(keys[i]), batchedResults[i]);
+            }
+        }
+
+        int[] keys = { 1, 2, 3, 4 };
+        batched.putAll(keys, 1, 3, new int[] { 0, 20, 30, 0 });
+        int[] ranged = { 7, 7, 7, 7 };
+        batched.getAll(keys, 1, 3, ranged);
+        assertArrayEquals(new int[] { 7, 20, 30, 7 }, ranged, "Range forms touch only their slice");
+    }
+
+    @Test
+    public void testStatsAndRemovalListener() {
+        AtomicLong time = new AtomicLong();
+        LRUCache cache = new LRUCache(2, 0, 0, TimeUnit.SECONDS, time::get);
+        cache.setStatsCounter(new ConcurrentStatsCounter(time::get));
+        List<String> removals = new ArrayList<>();
+        cache.setRemovalListener((key, value, cause) -> removals.add(cause + ":" + key + "=" + value), Runnable::run);
+
+        cache.put(1, 10);
+        cache.put(2, 20, 1, TimeUnit.SECONDS);
+        cache.get(1);
+        cache.get(3);
+        cache.put(4, 40); // Evicts 2 (LRU)
+        cache.put(5, 50, 1, TimeUnit.SECONDS); // Evicts 1
+        time.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        cache.cleanUp(); // Expires 5
+
+        assertEquals(List.of("EVICTED:2=20", "EVICTED:1=10", "EXPIRED:5=50"), removals);
+
+        CacheStats stats = cache.stats();
+        assertEquals(1, stats.hitCount());
+        assertEquals(1, stats.missCount());
+        assertEquals(4, stats.putCount());
+        assertEquals(2, stats.evictionCount());
+        assertEquals(0.5, stats.hitRate(), 1e-9);
+        assertEquals(2.0, stats.putsPerSecond(), 1e-9);
+    }
+
+    @Test
+    public void testLoadingCacheRecordsLoadTime() {
+        LoadingCache cache = new LoadingCache(new LRUCache(10));
+        ConcurrentStatsCounter stats = new ConcurrentStatsCounter();
+        cache.setStatsCounter(stats);
+
+        cache.get(1, key -> key);
+        assertThrows(RuntimeException.class, () -> cache.get(2, key -> {
+            throw new IllegalStateException("backend down");
+        }));
+
+        CacheStats snapshot = stats.snapshot();
+        assertEquals(1, snapshot.loadSuccessCount());
+        assertEquals(1, snapshot.loadFailureCount());
+        assertTrue(snapshot.totalLoadTimeNanos() > 0);
+    }
+
+    @Test
+    public void testLoadingCacheCountsEachMissOnce() {
+        LRUCache lru = new LRUCache(10);
+        lru.setStatsCounter(new ConcurrentStatsCounter());
+        LoadingCache cache = new LoadingCache(lru, Runnable::run);
+
+        assertEquals(1, cache.get(1, key -> key)); // Miss, then load
+        assertEquals(1, cache.get(1, key -> key)); // Hit
+        CacheStats stats = lru.stats();
+        assertEquals(1, stats.missCount(), "The post-registration re-check is not a second miss");
+        assertEquals(1, stats.hitCount());
+        assertEquals(0.5, stats.hitRate(), 1e-9);
+    }
+
+    @Test
+    public void testLoadingCacheCloseShutsDownOnlyItsOwnExecutor() throws Exception {
+        ExecutorService supplied = Executors.newSingleThreadExecutor();
+        try (LoadingCache borrowed = new LoadingCache(new LRUCache(10), supplied)) {
+            assertEquals(1, (int) borrowed.getAsync(1, key -> key).get());
+        }
+        assertFalse(supplied.isShutdown(), "The caller's executor is left alone");
+        supplied.shutdown();
+
+        LoadingCache owning = new LoadingCache(new LRUCache(10));
+        assertEquals(2, (int) owning.getAsync(2, key -> key).get());
+        owning.close();
+        assertTrue(owning.getAsync(3, key -> key).isCompletedExceptionally(), "Its own executor is shut down");
+    }
+
+    @Test
+    public void testLoadingCacheSurvivesRejectedExecutorAndFailedPut() {
+        LoadingCache rejecting = new LoadingCache(new LRUCache(10), task -> {
+            throw new RejectedExecutionException("shut down");
+        });
+        CompletableFuture<Integer> rejected = rejecting.getAsync(1, key -> key);
+        assertTrue(rejected.isCompletedExceptionally(), "Rejection fails the load instead of hanging it");
+        assertEquals(0, rejecting.inFlightCount());
+        assertEquals(7, rejecting.get(7, key -> key), "Later loads of the key are not stuck");
+
+        Cache failingPut = new LRUCache(10) {
+            @Override
+            public void put(int key, int value) {
+                throw new IllegalStateException("store full");
+            }
+        };
+        LoadingCache cache = new LoadingCache(failingPut);
+        ConcurrentStatsCounter stats = new ConcurrentStatsCounter();
+        cache.setStatsCounter(stats);
+        assertThrows(RuntimeException.class, () -> cache.get(1, key -> key));
+        assertEquals(0, stats.snapshot().loadSuccessCount());
+        assertEquals(1, stats.snapshot().loadFailureCount());
+    }
+
+    @Test
+    public void testSnapshotRestoresEntriesInRecencyOrder() throws Exception {
+        LRUCache source = new LRUCache(1000);
+        for (int i = 0; i < 1000; i++) {
+            source.put(i, -i - 10); // Negative values must survive the packing; none is the -1 miss sentinel
+        }
+        source.get(0); // 0 becomes most recent, 1 is now the LRU
+
+        Path file = Files.createTempFile("lru", ".snapshot");
+        try {
+            assertEquals(1000, CacheSnapshotter.save(source, file));
+
+            LRUCache warm = new LRUCache(1000);
+            assertEquals(1000, CacheSnapshotter.restore(warm, file));
+            assertEquals(-510, warm.get(500));
+            assertEquals(-11, warm.get(1), "Key 1 was restored");
+
+            warm = new LRUCache(1000);
+            CacheSnapshotter.restore(warm, file);
+            warm.put(5000, 1); // Evicts the restored LRU, which must be key 1
+            assertEquals(-1, warm.get(1), "Key 1 is really gone: no stored value is -1");
+            assertEquals(-10, warm.get(0));
+            assertEquals(-12, warm.get(2));
+
+            LRUCache smaller = new LRUCache(10);
+            assertEquals(10, CacheSnapshotter.restore(smaller, file), "Only the 10 most recent are loaded");
+            assertEquals(-10, smaller.get(0));
+            assertEquals(-1009, smaller.get(999));
+            assertEquals(-1, smaller.get(990));
+
+            // Scheduled snapshots report failures to the caller instead of printing them
+            ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+            CompletableFuture<Exception> failure = new CompletableFuture<>();
+            Path unwritable = file.resolveSibling("missing-dir").resolve("lru.snapshot");
+            CacheSnapshotter.scheduleSnapshots(source, unwritable, 1, TimeUnit.MILLISECONDS, scheduler,
+                    failure::complete);
+            assertTrue(failure.get(5, TimeUnit.SECONDS) instanceof IOException);
+            scheduler.shutdownNow();
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
 }
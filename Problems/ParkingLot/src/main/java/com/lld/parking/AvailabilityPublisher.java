@@ -0,0 +1,170 @@
+package com.lld.parking;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// --- Occupancy Counter ---
+// One per (floor, SpotType): every spot of that type on that floor shares it. The
+// LongAdder spreads concurrent gates over striped cells, so assign/release never
+// contend on one cache line; reads sum a handful of cells.
+// `dirty` tells the publisher something changed since its last tick. Gates only write
+// it when it is clear, so a busy counter isn't re-dirtying a shared line on every car.
+class OccupancyCounter {
+    private final int floorLevel;
+    private final SpotType type;
+    private final int capacity;
+    private final LongAdder occupied = new LongAdder();
+    private volatile boolean dirty;
+
+    public OccupancyCounter(int floorLevel, SpotType type, int capacity) {
+        this.floorLevel = floorLevel;
+        this.type = type;
+        this.capacity = capacity;
+    }
+
+    void onAssigned() {
+        occupied.increment();
+        markDirty();
+    }
+
+    void onReleased() {
+        occupied.decrement();
+        markDirty();
+    }
+
+    private void markDirty() {
+        if (!dirty)
+            dirty = true;
+    }
+
+    // Clears and returns the dirty flag; cleared *before* the count is read, so a
+    // change racing with the read re-dirties the counter for the next tick
+    boolean takeDirty() {
+        if (!dirty)
+            return false;
+        dirty = false;
+        return true;
+    }
+
+    public int freeSpots() {
+        return capacity - (int) occupied.sum();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public int floorLevel() {
+        return floorLevel;
+    }
+
+    public SpotType type() {
+        return type;
+    }
+}
+
+// One board line: free spots of a type on a floor
+record AvailabilityUpdate(int floorLevel, SpotType type, int freeSpots, int capacity) {
+}
+
+interface AvailabilityListener {
+    // One call per tick with every (floor, SpotType) whose free count changed
+    void onAvailabilityChanged(List<AvailabilityUpdate> changes);
+}
+
+// --- Availability Publisher ---
+// Observer Pattern: display boards and the mobile app subscribe instead of polling.
+// Changes are coalesced: a tick visits only dirty counters and emits one update per
+// (floor, SpotType) whose count differs from what was last pushed - 500 cars in and
+// out between ticks cost listeners at most one line each, and a net-zero churn none.
+// Ticks run on the publisher thread, so a slow listener never holds up a gate; a
+// listener that throws is logged and skipped for that batch, it stays subscribed.
+class AvailabilityPublisher {
+    private final ParkingLot lot;
+    private final List<AvailabilityListener> listeners = new CopyOnWriteArrayList<>();
+    private final Map<OccupancyCounter, Integer> lastPublished = new IdentityHashMap<>(); // Guarded by this
+    private ScheduledExecutorService scheduler;
+
+    public AvailabilityPublisher(ParkingLot lot) {
+        this.lot = lot;
+    }
+
+    // New subscribers first receive the full board, then only changes. Pending changes
+    // are flushed first so the board matches the baseline later ticks diff against.
+    public synchronized void subscribe(AvailabilityListener listener) {
+        publishChanges();
+        List<AvailabilityUpdate> board = new ArrayList<>();
+        for (ParkingFloor floor : lot.getFloors()) {
+            for (OccupancyCounter counter : floor.getOccupancy()) {
+                board.add(toUpdate(counter, lastPublished.get(counter)));
+            }
+        }
+        listener.onAvailabilityChanged(List.copyOf(board));
+        listeners.add(listener);
+    }
+
+    public void unsubscribe(AvailabilityListener listener) {
+        listeners.remove(listener);
+    }
+
+    // One publishing tick; returns the number of updates pushed
+    public synchronized int publishChanges() {
+        List<AvailabilityUpdate> changes = new ArrayList<>();
+        for (ParkingFloor floor : lot.getFloors()) {
+            for (OccupancyCounter counter : floor.getOccupancy()) {
+                boolean seen = lastPublished.containsKey(counter);
+                if (!counter.takeDirty() && seen)
+                    continue;
+                int free = counter.freeSpots();
+                Integer previous = lastPublished.put(counter, free);
+                if (previous == null || previous != free) // A floor's first tick announces it
+                    changes.add(toUpdate(counter, free));
+            }
+        }
+        if (!changes.isEmpty()) {
+            List<AvailabilityUpdate> batch = List.copyOf(changes);
+            for (AvailabilityListener listener : listeners) {
+                notify(listener, batch);
+            }
+        }
+        return changes.size();
+    }
+
+    // A throwing listener must not cancel the scheduled tick or starve the listeners after it
+    private static void notify(AvailabilityListener listener, List<AvailabilityUpdate> batch) {
+        try {
+            listener.onAvailabilityChanged(batch);
+        } catch (RuntimeException e) {
+            System.err.println("Availability listener failed: " + e);
+        }
+    }
+
+    public synchronized void start(long period, TimeUnit unit) {
+        if (scheduler != null)
+            return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "availability-publisher");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::publishChanges, period, period, unit);
+    }
+
+    public synchronized void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    private static AvailabilityUpdate toUpdate(OccupancyCounter counter, int free) {
+        return new AvailabilityUpdate(counter.floorLevel(), counter.type(), free, counter.capacity());
+    }
+}
@@ -0,0 +1,82 @@
+package com.lld.parking;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongBinaryOperator;
+
+// --- Free-Spot Index ---
+// A concurrent two-level bitset over one floor's spots of one SpotType:
+//   words:   bit i set   -> spot i is free
+//   summary: bit w set   -> words[w] *may* be non-zero
+// nextSetBit() checks the current word, then jumps through the summary to the next
+// non-empty word, so a lookup touches O(1 + n / 4096) longs instead of every spot.
+// Summary bits are cleared lazily by readers that find an empty word; a reader that
+// clears one re-checks the word afterwards so a concurrent set() is never lost.
+// The index is a hint: it is lock-free and may briefly lag the spot itself, so the
+// caller still confirms with the spot (ParkingSpot.assignVehicle).
+class FreeSpotIndex {
+    private static final LongBinaryOperator OR = (a, b) -> a | b;
+    private static final LongBinaryOperator AND_NOT = (a, b) -> a & ~b;
+
+    private final int size;
+    private final AtomicLongArray words;
+    private final AtomicLongArray summary;
+
+    public FreeSpotIndex(int size) {
+        this.size = size;
+        int wordCount = Math.max(1, (size + 63) >>> 6);
+        this.words = new AtomicLongArray(wordCount);
+        this.summary = new AtomicLongArray((wordCount + 63) >>> 6);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Marks slot i free
+    public void set(int i) {
+        int w = i >>> 6;
+        words.getAndAccumulate(w, 1L << i, OR);
+        summary.getAndAccumulate(w >>> 6, 1L << w, OR); // After the word: readers never miss it
+    }
+
+    // Marks slot i occupied; the summary bit is left for readers to clear lazily
+    public void clear(int i) {
+        words.getAndAccumulate(i >>> 6, 1L << i, AND_NOT);
+    }
+
+    public boolean get(int i) {
+        return (words.get(i >>> 6) & (1L << i)) != 0;
+    }
+
+    // Lowest free slot >= from, or -1
+    public int nextSetBit(int from) {
+        if (from >= size)
+            return -1;
+        int w = from >>> 6;
+        long word = words.get(w) & (-1L << from);
+        if (word != 0)
+            return (w << 6) + Long.numberOfTrailingZeros(word);
+
+        int nextWord = w + 1;
+        for (int sw = nextWord >>> 6; sw < summary.length(); sw++) {
+            long bits = summary.get(sw);
+            if (sw == nextWord >>> 6)
+                bits &= -1L << nextWord; // Skip words before nextWord (shift is mod 64)
+            while (bits != 0) {
+                int cw = (sw << 6) + Long.numberOfTrailingZeros(bits);
+                long candidate = words.get(cw);
+                if (candidate != 0)
+                    return (cw << 6) + Long.numberOfTrailingZeros(candidate);
+                // Stale summary bit: clear it, then re-check so a racing set() isn't hidden
+                summary.getAndAccumulate(sw, 1L << cw, AND_NOT);
+                candidate = words.get(cw);
+                if (candidate != 0) {
+                    summary.getAndAccumulate(sw, 1L << cw, OR);
+                    return (cw << 6) + Long.numberOfTrailingZeros(candidate);
+                }
+                bits &= bits - 1;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,110 @@
+package com.lld.parking;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+// Where drivers come in (or an elevator bank): a floor and a position along that floor
+record Entrance(String name, int floorLevel, int position) {
+}
+
+// --- Nearest-to-Entrance Strategy ---
+// Distances from every entrance to every spot are computed once. Each (entrance,
+// SpotType) pair keeps a ConcurrentSkipListSet of its free spots ordered by that
+// distance, so the closest candidate is first() - O(log n), lock-free.
+// A spot is claimed by ParkingSpot's CAS, so the sets are hints:
+//  - The winning entrance removes the spot from its own set immediately.
+//  - Other entrances find it lazily: an occupied head is removed, and if the spot
+//    was freed in the meantime it is re-added (remove-then-recheck), so a concurrent
+//    release is never lost.
+//  - A release re-inserts the spot into every entrance's set (O(E log n)).
+// Built over a fixed set of floors; rebuild the strategy when floors are added.
+class NearestEntranceParkingStrategy implements ParkingAssignmentStrategy {
+    private static final int FLOOR_DISTANCE = 100; // Changing floors ~ walking 100 spots
+
+    // Pre-allocated per (entrance, spot) so claims and releases don't allocate keys
+    private record SpotDistance(int distance, int spotIndex) {
+    }
+
+    private static final Comparator<SpotDistance> BY_DISTANCE = Comparator
+            .comparingInt(SpotDistance::distance).thenComparingInt(SpotDistance::spotIndex);
+
+    private final List<Entrance> entrances;
+    private final ParkingSpot[] spots;
+    private final Map<ParkingSpot, Integer> indexOf = new IdentityHashMap<>();
+    private final SpotDistance[][] distances; // [entrance][spotIndex]
+    private final List<EnumMap<SpotType, ConcurrentSkipListSet<SpotDistance>>> freeByEntrance = new ArrayList<>();
+
+    public NearestEntranceParkingStrategy(List<ParkingFloor> floors, List<Entrance> entrances) {
+        if (entrances.isEmpty())
+            throw new IllegalArgumentException("At least one entrance is required");
+        this.entrances = List.copyOf(entrances);
+        List<ParkingSpot> all = new ArrayList<>();
+        List<Integer> levels = new ArrayList<>();
+        for (ParkingFloor floor : floors) {
+            for (ParkingSpot spot : floor.getSpots()) {
+                indexOf.put(spot, all.size());
+                all.add(spot);
+                levels.add(floor.getLevel());
+            }
+        }
+        this.spots = all.toArray(new ParkingSpot[0]);
+        this.distances = new SpotDistance[this.entrances.size()][spots.length];
+
+        for (int e = 0; e < this.entrances.size(); e++) {
+            Entrance entrance = this.entrances.get(e);
+            EnumMap<SpotType, ConcurrentSkipListSet<SpotDistance>> byType = new EnumMap<>(SpotType.class);
+            for (SpotType type : SpotType.values()) {
+                byType.put(type, new ConcurrentSkipListSet<>(BY_DISTANCE));
+            }
+            for (int i = 0; i < spots.length; i++) {
+                int distance = Math.abs(levels.get(i) - entrance.floorLevel()) * FLOOR_DISTANCE
+                        + Math.abs(spots[i].getId() - entrance.position());
+                distances[e][i] = new SpotDistance(distance, i);
+                if (spots[i].isFree())
+                    byType.get(spots[i].getType()).add(distances[e][i]);
+            }
+            freeByEntrance.add(byType);
+        }
+    }
+
+    // Without an entrance, assume the first (main) one
+    @Override
+    public ParkingSpot claimSpot(List<ParkingFloor> floors, Vehicle vehicle) {
+        return claimSpot(floors, vehicle, entrances.get(0));
+    }
+
+    @Override
+    public ParkingSpot claimSpot(List<ParkingFloor> floors, Vehicle vehicle, Entrance entrance) {
+        int e = entrances.indexOf(entrance);
+        if (e < 0)
+            throw new IllegalArgumentException("Unknown entrance: " + entrance.name());
+        ConcurrentSkipListSet<SpotDistance> free = freeByEntrance.get(e)
+                .get(ParkingFloor.spotTypeFor(vehicle.getType()));
+        while (true) {
+            SpotDistance nearest = free.pollFirst();
+            if (nearest == null)
+                return null; // No free spot of this type anywhere
+            ParkingSpot spot = spots[nearest.spotIndex()];
+            if (spot.assignVehicle(vehicle))
+                return spot;
+            // Taken via another entrance: we already dropped it; re-add if it was freed meanwhile
+            if (spot.isFree())
+                free.add(nearest);
+        }
+    }
+
+    @Override
+    public void onSpotReleased(ParkingSpot spot) {
+        Integer i = indexOf.get(spot);
+        if (i == null)
+            return; // Not on a floor this strategy was built for
+        for (int e = 0; e < entrances.size(); e++) {
+            freeByEntrance.get(e).get(spot.getType()).add(distances[e][i]);
+        }
+    }
+}
@@ -1,12 +1,11 @@
 package com.lld.parking;
 
-import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
-import java.util.UUID;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 // --- Enums ---
 enum VehicleType {
@@ -19,30 +18,40 @@ enum SpotType {
 
 // --- Strategy Interfaces ---
 interface PricingStrategy {
-    double calculateFee(Ticket ticket);
+    double calculateFee(Ticket ticket, long exitEpochMillis);
 }
 
 interface ParkingAssignmentStrategy {
-    ParkingSpot findSpot(List<ParkingFloor> floors, VehicleType type);
+    // Finds AND atomically claims a spot for the vehicle. Returns null only when no spot
+    // of the needed type was free - a lost race moves on to the next candidate.
+    ParkingSpot claimSpot(List<ParkingFloor> floors, Vehicle vehicle);
+
+    // Entrance-aware strategies override this; others ignore where the driver came in
+    default ParkingSpot claimSpot(List<ParkingFloor> floors, Vehicle vehicle, Entrance entrance) {
+        return claimSpot(floors, vehicle);
+    }
+
+    // Called after a spot is freed, for strategies that keep their own free-spot structures
+    default void onSpotReleased(ParkingSpot spot) {
+    }
 }
 
-// --- Concrete Strategies ---
 // --- Concrete Strategies ---
 class HourlyPricingStrategy implements PricingStrategy {
+    private static final TariffTable TARIFF = TariffTable.flat(20.0); // Flat 20 per hour
+
     @Override
-    public double calculateFee(Ticket ticket) {
-        long hours = ChronoUnit.HOURS.between(ticket.entryTime(), LocalDateTime.now());
-        if (hours == 0)
-            hours = 1; // Minimum 1 hour
-        return hours * 20.0; // Flat 20 per hour
+    public double calculateFee(Ticket ticket, long exitEpochMillis) {
+        // Minimum 1 hour
+        return TARIFF.fee(TariffTable.billedHours(ticket.entryEpochMillis(), exitEpochMillis));
     }
 }
 
 class NaturalOrderParkingStrategy implements ParkingAssignmentStrategy {
     @Override
-    public ParkingSpot findSpot(List<ParkingFloor> floors, VehicleType type) {
+    public ParkingSpot claimSpot(List<ParkingFloor> floors, Vehicle vehicle) {
         for (ParkingFloor floor : floors) {
-            ParkingSpot spot = floor.findFreeSpot(type);
+            ParkingSpot spot = floor.claimFreeSpot(vehicle);
             if (spot != null)
                 return spot;
         }
@@ -63,6 +72,10 @@ abstract class Vehicle {
     public VehicleType getType() {
         return type;
     }
+
+    public String getPlate() {
+        return plate;
+    }
 }
 
 class Car extends Vehicle {
@@ -77,21 +90,35 @@ class Truck extends Vehicle {
     }
 }
 
+// The occupant reference IS the spot state (null = free) and is claimed with a single
+// CAS through a static field updater - no lock object or AtomicReference per spot.
 class ParkingSpot {
+    private static final AtomicReferenceFieldUpdater<ParkingSpot, Vehicle> VEHICLE = AtomicReferenceFieldUpdater
+            .newUpdater(ParkingSpot.class, Vehicle.class, "vehicle");
+    private static final AtomicReferenceFieldUpdater<ParkingSpot, Ticket> TICKET = AtomicReferenceFieldUpdater
+            .newUpdater(ParkingSpot.class, Ticket.class, "ticket");
+
     private int id;
     private SpotType type;
-    private boolean isFree;
-    private Vehicle vehicle;
-    private final ReentrantLock lock = new ReentrantLock();
+    private volatile Vehicle vehicle;
+
+    // Owning floor's free-spot index and occupancy counter for this type, and our slot
+    // in the index (both null if the spot isn't on a floor)
+    private FreeSpotIndex freeIndex;
+    private int slot;
+    private OccupancyCounter occupancy;
+
+    // TicketRegistry slot: our number in the lot, and the open ticket (if any)
+    private int registryNumber = -1;
+    private volatile Ticket ticket;
 
     public ParkingSpot(int id, SpotType type) {
         this.id = id;
         this.type = type;
-        this.isFree = true;
     }
 
     public boolean isFree() {
-        return isFree;
+        return vehicle == null;
     }
 
     public SpotType getType() {
@@ -102,26 +129,58 @@ class ParkingSpot {
         return id;
     }
 
+    public Vehicle getVehicle() {
+        return vehicle;
+    }
+
+    int getRegistryNumber() {
+        if (registryNumber < 0)
+            throw new IllegalStateException("Spot " + id + " is not registered with a lot");
+        return registryNumber;
+    }
+
+    void setRegistryNumber(int registryNumber) {
+        this.registryNumber = registryNumber;
+    }
+
+    Ticket openTicket() {
+        return ticket;
+    }
+
+    void openTicket(Ticket ticket) {
+        this.ticket = ticket;
+    }
+
+    // Only one exit can close a given ticket
+    boolean closeTicket(Ticket expected) {
+        return TICKET.compareAndSet(this, expected, null);
+    }
+
+    void attachIndex(FreeSpotIndex freeIndex, int slot, OccupancyCounter occupancy) {
+        this.freeIndex = freeIndex;
+        this.slot = slot;
+        this.occupancy = occupancy;
+        if (isFree())
+            freeIndex.set(slot);
+        else
+            occupancy.onAssigned();
+    }
+
+    // Exactly one concurrent caller wins the CAS; the others see false and move on
     public boolean assignVehicle(Vehicle v) {
-        lock.lock();
-        try {
-            if (!isFree)
-                return false; // Double check
-            this.vehicle = v;
-            this.isFree = false;
-            return true;
-        } finally {
-            lock.unlock();
+        if (!VEHICLE.compareAndSet(this, null, v))
+            return false;
+        if (freeIndex != null) {
+            freeIndex.clear(slot);
+            occupancy.onAssigned();
         }
+        return true;
     }
 
     public void removeVehicle() {
-        lock.lock();
-        try {
-            this.vehicle = null;
-            this.isFree = true;
-        } finally {
-            lock.unlock();
+        if (VEHICLE.getAndSet(this, null) != null && freeIndex != null) {
+            freeIndex.set(slot); // Published only after the spot is really free
+            occupancy.onReleased();
         }
     }
 }
@@ -130,6 +189,11 @@ class ParkingFloor {
     private int level;
     private List<ParkingSpot> spots;
 
+    // Free-spot index per SpotType: slot i of a type <-> spotsByType[type][i]
+    private final EnumMap<SpotType, FreeSpotIndex> freeIndex = new EnumMap<>(SpotType.class);
+    private final EnumMap<SpotType, ParkingSpot[]> spotsByType = new EnumMap<>(SpotType.class);
+    private final EnumMap<SpotType, OccupancyCounter> occupancy = new EnumMap<>(SpotType.class);
+
     public ParkingFloor(int level, int numSpots) {
         this.level = level;
         this.spots = Collections.synchronizedList(new ArrayList<>());
@@ -142,31 +206,81 @@ class ParkingFloor {
                 type = SpotType.LARGE;
             spots.add(new ParkingSpot(i, type));
         }
+        buildIndex();
     }
 
-    public ParkingSpot findFreeSpot(VehicleType vType) {
+    private void buildIndex() {
+        for (SpotType type : SpotType.values()) {
+            List<ParkingSpot> ofType = new ArrayList<>();
+            for (ParkingSpot spot : spots) {
+                if (spot.getType() == type)
+                    ofType.add(spot);
+            }
+            FreeSpotIndex index = new FreeSpotIndex(ofType.size());
+            OccupancyCounter counter = new OccupancyCounter(level, type, ofType.size());
+            for (int slot = 0; slot < ofType.size(); slot++) {
+                ofType.get(slot).attachIndex(index, slot, counter);
+            }
+            freeIndex.put(type, index);
+            occupancy.put(type, counter);
+            spotsByType.put(type, ofType.toArray(new ParkingSpot[0]));
+        }
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public List<ParkingSpot> getSpots() {
+        return Collections.unmodifiableList(spots);
+    }
+
+    // O(1): read from the live counter, not by walking `spots`
+    public int freeSpots(SpotType type) {
+        return occupancy.get(type).freeSpots();
+    }
+
+    Collection<OccupancyCounter> getOccupancy() {
+        return occupancy.values();
+    }
+
+    static SpotType spotTypeFor(VehicleType vType) {
         // Simple mapping
-        SpotType needed = SpotType.COMPACT;
         if (vType == VehicleType.TRUCK)
-            needed = SpotType.LARGE;
+            return SpotType.LARGE;
         if (vType == VehicleType.MOTORCYCLE)
-            needed = SpotType.MOTORCYCLE_SPOT;
+            return SpotType.MOTORCYCLE_SPOT;
+        return SpotType.COMPACT;
+    }
 
-        for (ParkingSpot spot : spots) {
-            // Optimistic check
-            if (spot.isFree() && spot.getType() == needed) {
-                return spot;
-            }
+    // O(1 + n/4096) via the free-spot index instead of scanning every spot.
+    // Optimistic: the caller still confirms with assignVehicle().
+    public ParkingSpot findFreeSpot(VehicleType vType) {
+        SpotType needed = spotTypeFor(vType);
+        int slot = freeIndex.get(needed).nextSetBit(0);
+        return slot < 0 ? null : spotsByType.get(needed)[slot];
+    }
+
+    // Claims the first free spot for the vehicle. When another gate wins a candidate
+    // (or its index bit is momentarily stale) we continue past it, so this returns null
+    // only after walking off the end of the index: no free spot of the type was seen.
+    public ParkingSpot claimFreeSpot(Vehicle vehicle) {
+        SpotType needed = spotTypeFor(vehicle.getType());
+        FreeSpotIndex index = freeIndex.get(needed);
+        ParkingSpot[] candidates = spotsByType.get(needed);
+        for (int slot = index.nextSetBit(0); slot >= 0; slot = index.nextSetBit(slot + 1)) {
+            if (candidates[slot].assignVehicle(vehicle))
+                return candidates[slot];
         }
         return null;
     }
 }
 
 // Modern Java: Record for immutable data carrier
-record Ticket(String id, LocalDateTime entryTime, ParkingSpot spot) {
-    public Ticket(ParkingSpot spot) {
-        this(UUID.randomUUID().toString(), LocalDateTime.now(), spot);
-    }
+// Compact: a long id from TicketRegistry and epoch millis instead of a UUID string
+// and a LocalDateTime. The vehicle is kept on the ticket so a lookup by plate never
+// pairs one car's ticket with the next car's plate while the spot turns over.
+record Ticket(long id, long entryEpochMillis, ParkingSpot spot, Vehicle vehicle) {
 }
 
 class ParkingLot {
@@ -174,6 +288,8 @@ class ParkingLot {
     private ParkingAssignmentStrategy assignmentStrategy;
     private PricingStrategy pricingStrategy;
     private static ParkingLot instance;
+    private AvailabilityPublisher availability;
+    private final TicketRegistry tickets = new TicketRegistry();
 
     // Package-private for testing
     ParkingLot() {
@@ -190,28 +306,65 @@ class ParkingLot {
 
     public void addFloor(ParkingFloor floor) {
         floors.add(floor);
+        tickets.register(floor);
     }
 
-    public Ticket parkVehicle(Vehicle v) {
-        ParkingSpot spot = assignmentStrategy.findSpot(floors, v.getType());
-        if (spot != null) {
-            // Concurrent Attempt: Try to lock/assign
-            // The strategy returns a candidate, but between finding and assigning, it might
-            // be taken.
-            // Our Spot.assignVehicle has a lock. return that result.
-            if (spot.assignVehicle(v)) {
-                return new Ticket(spot);
-            } else {
-                // Retry finding? simplified -> fail
-                System.out.println("Race condition hit! Spot taken.");
-            }
+    public List<ParkingFloor> getFloors() {
+        return Collections.unmodifiableList(floors);
+    }
+
+    public int freeSpots(SpotType type) {
+        int free = 0;
+        for (ParkingFloor floor : floors) {
+            free += floor.freeSpots(type);
         }
-        return null;
+        return free;
+    }
+
+    // Push-based board feed; call start() on it to publish on a schedule
+    public synchronized AvailabilityPublisher availability() {
+        if (availability == null)
+            availability = new AvailabilityPublisher(this);
+        return availability;
+    }
+
+    public TicketRegistry getTickets() {
+        return tickets;
+    }
+
+    public void setPricingStrategy(PricingStrategy pricingStrategy) {
+        this.pricingStrategy = pricingStrategy;
+    }
+
+    public void setAssignmentStrategy(ParkingAssignmentStrategy assignmentStrategy) {
+        this.assignmentStrategy = assignmentStrategy;
+    }
+
+    // Null means the lot has no free spot for this vehicle type - never a lost race:
+    // the strategy claims by CAS and moves on to the next candidate when another gate wins.
+    public Ticket parkVehicle(Vehicle v) {
+        ParkingSpot spot = assignmentStrategy.claimSpot(floors, v);
+        return spot == null ? null : tickets.issue(spot, v, System.currentTimeMillis());
+    }
+
+    public Ticket parkVehicle(Vehicle v, Entrance entrance) {
+        ParkingSpot spot = assignmentStrategy.claimSpot(floors, v, entrance);
+        return spot == null ? null : tickets.issue(spot, v, System.currentTimeMillis());
     }
 
     public double exitVehicle(Ticket ticket) {
+        return exitVehicle(ticket.id());
+    }
+
+    // O(1) lookup by id. The ticket is closed before the spot is freed, so the next
+    // car's ticket on this spot can't be closed by a late or replayed exit.
+    public double exitVehicle(long ticketId) {
+        Ticket ticket = tickets.close(ticketId);
+        if (ticket == null)
+            throw new IllegalArgumentException("Unknown or already closed ticket: " + ticketId);
         ticket.spot().removeVehicle();
-        return pricingStrategy.calculateFee(ticket);
+        assignmentStrategy.onSpotReleased(ticket.spot());
+        return pricingStrategy.calculateFee(ticket, System.currentTimeMillis());
     }
 }
 
@@ -244,5 +397,32 @@ public class Solution {
             double fee = lot.exitVehicle(t1);
             System.out.println("Car Exited. Fee: " + fee);
         }
+
+        // 4. Nearest-to-entrance assignment
+        ParkingLot mall = new ParkingLot();
+        mall.addFloor(new ParkingFloor(1, 40));
+        mall.addFloor(new ParkingFloor(2, 40));
+        Entrance north = new Entrance("North", 1, 0);
+        Entrance southLift = new Entrance("South Lift", 2, 39);
+        mall.setAssignmentStrategy(new NearestEntranceParkingStrategy(mall.getFloors(), List.of(north, southLift)));
+        Ticket viaNorth = mall.parkVehicle(new Car("KA-02-0001"), north);
+        Ticket viaLift = mall.parkVehicle(new Car("KA-02-0002"), southLift);
+        System.out.println("Via North -> spot " + viaNorth.spot().getId() + ", via South Lift -> spot "
+                + viaLift.spot().getId());
+
+        // 5. Availability board: O(1) counts, coalesced pushes
+        mall.availability().subscribe(changes -> changes.forEach(u -> System.out.println(
+                "Board: floor " + u.floorLevel() + " " + u.type() + " " + u.freeSpots() + "/" + u.capacity())));
+        for (int i = 3; i <= 5; i++) {
+            mall.parkVehicle(new Car("KA-02-000" + i), north);
+        }
+        mall.availability().publishChanges(); // Three arrivals, one line
+        System.out.println("Free compact spots: " + mall.freeSpots(SpotType.COMPACT));
+
+        // 6. Ticket registry and tariff tables
+        mall.setPricingStrategy(PricingStrategyFactory.create(PricingType.TIERED));
+        Ticket lost = mall.getTickets().findByPlate("KA-02-0001");
+        System.out.println("Lost ticket for KA-02-0001 -> id " + lost.id() + ", fee " + mall.exitVehicle(lost.id()));
+        System.out.println("Open tickets: " + mall.getTickets().openTickets().size());
     }
 }
@@ -0,0 +1,117 @@
+package com.lld.parking;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneRules;
+import java.util.Arrays;
+
+// --- Tariff Table ---
+// The fee for every billed hour count within a day (0..24, daily cap applied) is
+// summed once at construction; longer stays are whole days plus a remainder:
+//   fee(h) = (h / 24) * dayFee + cumulative[h % 24]
+// Exit is then integer math on epoch millis - no LocalDateTime, no ChronoUnit,
+// no allocation.
+class TariffTable {
+    static final long MILLIS_PER_HOUR = 3_600_000L;
+    private static final int HOURS_PER_DAY = 24;
+
+    private final double[] cumulative = new double[HOURS_PER_DAY + 1];
+
+    // hourlyRates[i] is the price of the (i+1)-th hour of a day
+    public TariffTable(double[] hourlyRates, double dailyCap) {
+        if (hourlyRates.length != HOURS_PER_DAY)
+            throw new IllegalArgumentException("Need one rate per hour of the day");
+        for (int h = 1; h <= HOURS_PER_DAY; h++) {
+            cumulative[h] = Math.min(dailyCap, cumulative[h - 1] + hourlyRates[h - 1]);
+        }
+    }
+
+    public static TariffTable flat(double ratePerHour) {
+        double[] rates = new double[HOURS_PER_DAY];
+        Arrays.fill(rates, ratePerHour);
+        return new TariffTable(rates, Double.MAX_VALUE);
+    }
+
+    public double fee(long billedHours) {
+        return (billedHours / HOURS_PER_DAY) * cumulative[HOURS_PER_DAY]
+                + cumulative[(int) (billedHours % HOURS_PER_DAY)];
+    }
+
+    // Whole hours parked, minimum 1
+    static long billedHours(long entryMillis, long exitMillis) {
+        return Math.max(1, (exitMillis - entryMillis) / MILLIS_PER_HOUR);
+    }
+}
+
+enum PricingType {
+    HOURLY, TIERED, WEEKEND
+}
+
+// --- Factory ---
+class PricingStrategyFactory {
+    public static PricingStrategy create(PricingType type) {
+        switch (type) {
+            case HOURLY:
+                return new HourlyPricingStrategy();
+            case TIERED:
+                return new TieredPricingStrategy();
+            case WEEKEND:
+                return new WeekendPricingStrategy(ZoneId.systemDefault());
+            default:
+                throw new IllegalArgumentException("Unknown PricingType");
+        }
+    }
+}
+
+// First 2 hours 20, hours 3-6 at 15, then 10; at most 150 a day
+class TieredPricingStrategy implements PricingStrategy {
+    private static final TariffTable TARIFF = tiers();
+
+    private static TariffTable tiers() {
+        double[] rates = new double[24];
+        for (int h = 0; h < rates.length; h++) {
+            rates[h] = h < 2 ? 20.0 : h < 6 ? 15.0 : 10.0;
+        }
+        return new TariffTable(rates, 150.0);
+    }
+
+    @Override
+    public double calculateFee(Ticket ticket, long exitEpochMillis) {
+        return TARIFF.fee(TariffTable.billedHours(ticket.entryEpochMillis(), exitEpochMillis));
+    }
+}
+
+// Weekday 20/hour, weekend 30/hour, picked by the day the vehicle entered.
+// The day of week is derived from epoch millis plus the zone's offset at the entry
+// instant, so the boundary stays right across DST changes; a fixed-offset zone
+// skips the rules lookup.
+class WeekendPricingStrategy implements PricingStrategy {
+    private static final long MILLIS_PER_DAY = 24 * TariffTable.MILLIS_PER_HOUR;
+    private static final TariffTable WEEKDAY = TariffTable.flat(20.0);
+    private static final TariffTable WEEKEND = TariffTable.flat(30.0);
+
+    private final ZoneRules rules;
+    private final long fixedOffsetMillis; // Only meaningful when rules.isFixedOffset()
+
+    public WeekendPricingStrategy(ZoneId zone) {
+        this.rules = zone.getRules();
+        this.fixedOffsetMillis = rules.isFixedOffset() ? offsetMillis(Instant.EPOCH) : 0;
+    }
+
+    @Override
+    public double calculateFee(Ticket ticket, long exitEpochMillis) {
+        TariffTable tariff = isWeekend(ticket.entryEpochMillis()) ? WEEKEND : WEEKDAY;
+        return tariff.fee(TariffTable.billedHours(ticket.entryEpochMillis(), exitEpochMillis));
+    }
+
+    boolean isWeekend(long epochMillis) {
+        long offset = rules.isFixedOffset() ? fixedOffsetMillis : offsetMillis(Instant.ofEpochMilli(epochMillis));
+        long day = Math.floorDiv(epochMillis + offset, MILLIS_PER_DAY);
+        int dayOfWeek = (int) Math.floorMod(day + 3, 7L); // 1970-01-01 was a Thursday; 0 = Monday
+        return dayOfWeek >= 5;
+    }
+
+    private long offsetMillis(Instant instant) {
+        return rules.getOffset(instant).getTotalSeconds() * 1000L;
+    }
+}
@@ -0,0 +1,82 @@
+package com.lld.parking;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// --- Ticket Registry ---
+// A spot holds at most one open ticket, so the spot itself is the index slot:
+//   ticket id = (issue sequence << SPOT_BITS) | registry number of the spot
+// lookup() masks out the spot number, reads that spot's open ticket and checks the
+// full id - one array read, no hashing or boxing, and memory is fixed at one
+// reference per spot however many tickets are issued. The sequence keeps ids unique
+// over time, so a stale or replayed ticket never matches the spot's current one.
+// Closing is a CAS on the spot's ticket, so a ticket can only be paid once.
+class TicketRegistry {
+    private static final int SPOT_BITS = 24; // Up to 16M spots per lot
+    private static final long SPOT_MASK = (1L << SPOT_BITS) - 1;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private volatile ParkingSpot[] spots = new ParkingSpot[0]; // Copy-on-write: floors are added rarely
+
+    public synchronized void register(ParkingFloor floor) {
+        List<ParkingSpot> added = floor.getSpots();
+        ParkingSpot[] grown = Arrays.copyOf(spots, spots.length + added.size());
+        if (grown.length > SPOT_MASK + 1)
+            throw new IllegalStateException("Too many spots for the ticket id format");
+        for (int i = 0; i < added.size(); i++) {
+            int number = spots.length + i;
+            grown[number] = added.get(i);
+            grown[number].setRegistryNumber(number);
+        }
+        spots = grown;
+    }
+
+    // The caller has just claimed the spot, so no other ticket can be open on it
+    public Ticket issue(ParkingSpot spot, Vehicle vehicle, long nowMillis) {
+        long id = (sequence.incrementAndGet() << SPOT_BITS) | spot.getRegistryNumber();
+        Ticket ticket = new Ticket(id, nowMillis, spot, vehicle);
+        spot.openTicket(ticket);
+        return ticket;
+    }
+
+    // O(1); null if the id is unknown or the ticket was already closed
+    public Ticket lookup(long ticketId) {
+        ParkingSpot[] current = spots;
+        long number = ticketId & SPOT_MASK;
+        if (ticketId <= 0 || number >= current.length)
+            return null;
+        Ticket open = current[(int) number].openTicket();
+        return open != null && open.id() == ticketId ? open : null;
+    }
+
+    // Returns the closed ticket, or null if it wasn't open (unknown or already paid)
+    public Ticket close(long ticketId) {
+        Ticket open = lookup(ticketId);
+        return open != null && open.spot().closeTicket(open) ? open : null;
+    }
+
+    // Lost ticket: the driver only knows the plate. O(spots), but off the gate path.
+    // Matches on the ticket's own vehicle - one read - so a spot changing hands between
+    // two reads can't pair the old ticket with the new car's plate.
+    public Ticket findByPlate(String plate) {
+        for (ParkingSpot spot : spots) {
+            Ticket open = spot.openTicket();
+            if (open != null && open.vehicle().getPlate().equals(plate))
+                return open;
+        }
+        return null;
+    }
+
+    // Audit snapshot of every open ticket
+    public List<Ticket> openTickets() {
+        List<Ticket> open = new ArrayList<>();
+        for (ParkingSpot spot : spots) {
+            Ticket ticket = spot.openTicket();
+            if (ticket != null)
+                open.add(ticket);
+        }
+        return open;
+    }
+}
@@ -1,6 +1,18 @@
 package com.lld.parking;
 
 import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class ParkingLotTest {
@@ -8,10 +20,11 @@ public class ParkingLotTest {
     @Test
     public void testVehicleParkingAndUnparking() {
         ParkingLot lot = new ParkingLot();
+        lot.addFloor(new ParkingFloor(1, 10));
 
         // 1. Create Vehicles
-        Vehicle car = new Vehicle(1, VehicleType.CAR);
-        Vehicle truck = new Vehicle(2, VehicleType.TRUCK);
+        Vehicle car = new Car("KA-01-0001");
+        Vehicle truck = new Truck("KA-01-0002");
 
         // 2. Park Vehicles
         Ticket ticket1 = lot.parkVehicle(car);
@@ -25,7 +38,7 @@ public class ParkingLotTest {
 
         // 3. Unpark Car
         // Simulate time passing (min 1 hr usually)
-        double price = lot.processExit(ticket1);
+        double price = lot.exitVehicle(ticket1);
 
         // 4. Verify Pricing Strategy
         // Assuming Hourly Strategy: >0 means paid
@@ -44,4 +57,185 @@ public class ParkingLotTest {
         // For demo simplicity, just asserting basic object creation
         assertNotNull(lot, "Parking Lot initialized");
     }
+
+    @Test
+    public void testFreeSpotIndexTracksAssignAndRelease() {
+        FreeSpotIndex index = new FreeSpotIndex(10_000);
+        assertEquals(-1, index.nextSetBit(0));
+        index.set(9_999);
+        index.set(64);
+        assertEquals(64, index.nextSetBit(0));
+        assertEquals(9_999, index.nextSetBit(65));
+        index.clear(64);
+        assertEquals(9_999, index.nextSetBit(0), "Skips the emptied words via the summary");
+        index.clear(9_999);
+        assertEquals(-1, index.nextSetBit(0));
+
+        ParkingFloor floor = new ParkingFloor(1, 12); // 3 bike, 7 compact, 2 large (ids 10..11)
+        ParkingSpot first = floor.findFreeSpot(VehicleType.TRUCK);
+        assertTrue(first.assignVehicle(new Truck("T1")));
+        ParkingSpot second = floor.findFreeSpot(VehicleType.TRUCK);
+        assertNotSame(first, second);
+        assertTrue(second.assignVehicle(new Truck("T2")));
+        assertNull(floor.findFreeSpot(VehicleType.TRUCK), "Large spots are full");
+        first.removeVehicle();
+        assertSame(first, floor.findFreeSpot(VehicleType.TRUCK));
+    }
+
+    @Test
+    public void testConcurrentGatesFillEverySpotWithoutSpuriousFailures() throws InterruptedException {
+        ParkingLot lot = new ParkingLot();
+        lot.addFloor(new ParkingFloor(1, 400)); // 201 compact spots (ids 100..300)
+        lot.addFloor(new ParkingFloor(2, 400));
+        int compactSpots = 2 * 201;
+        Set<ParkingSpot> taken = ConcurrentHashMap.newKeySet();
+        AtomicInteger failures = new AtomicInteger();
+        Thread[] gates = new Thread[16];
+        for (int g = 0; g < gates.length; g++) {
+            int gate = g;
+            gates[g] = new Thread(() -> {
+                for (int i = 0; i < 50; i++) { // 800 cars for 402 spots
+                    Ticket ticket = lot.parkVehicle(new Car("G" + gate + "-" + i));
+                    if (ticket == null)
+                        failures.incrementAndGet();
+                    else
+                        assertTrue(taken.add(ticket.spot()), "Spot handed out twice");
+                }
+            });
+            gates[g].start();
+        }
+        for (Thread gate : gates) {
+            gate.join();
+        }
+        assertEquals(compactSpots, taken.size(), "Every spot filled despite contention");
+        assertEquals(800 - compactSpots, failures.get(), "Failures only once the lot is full");
+    }
+
+    @Test
+    public void testNearestEntranceStrategyPicksClosestFreeSpot() {
+        ParkingLot lot = new ParkingLot();
+        lot.addFloor(new ParkingFloor(1, 40)); // Compact spots are ids 10..30 on each floor
+        lot.addFloor(new ParkingFloor(2, 40));
+        Entrance north = new Entrance("North", 1, 0);
+        Entrance lift = new Entrance("Lift", 2, 39);
+        lot.setAssignmentStrategy(new NearestEntranceParkingStrategy(lot.getFloors(), List.of(north, lift)));
+
+        Ticket a = lot.parkVehicle(new Car("A"), north);
+        Ticket b = lot.parkVehicle(new Car("B"), north);
+        Ticket c = lot.parkVehicle(new Car("C"), lift);
+        assertEquals(10, a.spot().getId());
+        assertEquals(11, b.spot().getId());
+        assertEquals(30, c.spot().getId());
+        assertTrue(lot.getFloors().get(1).getSpots().contains(c.spot()), "Lift is on floor 2");
+
+        lot.exitVehicle(a);
+        assertEquals(10, lot.parkVehicle(new Car("D"), north).spot().getId(), "Released spot is nearest again");
+
+        for (int i = 0; i < 40; i++) { // Fill the remaining 39 compact spots, one overflow
+            lot.parkVehicle(new Car("F" + i), i % 2 == 0 ? north : lift);
+        }
+        assertNull(lot.parkVehicle(new Car("X"), lift), "Full");
+    }
+
+    @Test
+    public void testOccupancyCountersAndCoalescedBoardUpdates() {
+        ParkingLot lot = new ParkingLot();
+        lot.addFloor(new ParkingFloor(1, 12)); // 3 bike, 7 compact, 2 large
+        lot.addFloor(new ParkingFloor(2, 12));
+        List<List<AvailabilityUpdate>> pushes = new ArrayList<>();
+        lot.availability().subscribe(pushes::add);
+        assertEquals(6, pushes.get(0).size(), "Full board on subscribe: 2 floors x 3 types");
+
+        Ticket first = null;
+        for (int i = 0; i < 9; i++) { // Fills floor 1's compacts, spills 2 onto floor 2
+            Ticket t = lot.parkVehicle(new Car("C" + i));
+            if (first == null)
+                first = t;
+        }
+        lot.parkVehicle(new Truck("T"));
+        assertEquals(0, lot.getFloors().get(0).freeSpots(SpotType.COMPACT));
+        assertEquals(5, lot.freeSpots(SpotType.COMPACT));
+        assertEquals(3, lot.freeSpots(SpotType.LARGE));
+
+        assertEquals(3, lot.availability().publishChanges(), "10 arrivals coalesce into 3 board lines");
+        assertTrue(pushes.get(1).contains(new AvailabilityUpdate(1, SpotType.COMPACT, 0, 7)));
+        assertTrue(pushes.get(1).contains(new AvailabilityUpdate(2, SpotType.COMPACT, 5, 7)));
+
+        lot.exitVehicle(first);
+        lot.parkVehicle(new Car("C9")); // Takes the same spot back: net zero
+        assertEquals(0, lot.availability().publishChanges(), "Net-zero churn pushes nothing");
+        assertEquals(2, pushes.size());
+    }
+
+    @Test
+    public void testThrowingListenerDoesNotStopPublishing() throws InterruptedException {
+        ParkingLot lot = new ParkingLot();
+        lot.addFloor(new ParkingFloor(1, 12));
+        List<List<AvailabilityUpdate>> pushes = new CopyOnWriteArrayList<>();
+        AvailabilityPublisher publisher = lot.availability();
+        publisher.subscribe(changes -> {
+            if (changes.size() == 1) // Let the initial board through, fail every tick
+                throw new IllegalStateException("Board offline");
+        });
+        publisher.subscribe(pushes::add);
+        publisher.start(5, TimeUnit.MILLISECONDS);
+
+        lot.parkVehicle(new Car("A"));
+        for (int i = 0; i < 200 && pushes.size() < 2; i++) {
+            Thread.sleep(5);
+        }
+        lot.parkVehicle(new Car("B"));
+        for (int i = 0; i < 200 && pushes.size() < 3; i++) {
+            Thread.sleep(5);
+        }
+        publisher.shutdown();
+        assertEquals(3, pushes.size(), "Later listeners get every batch and ticks keep running");
+        assertEquals(List.of(new AvailabilityUpdate(1, SpotType.COMPACT, 5, 7)), pushes.get(2));
+    }
+
+    @Test
+    public void testTicketRegistryLookupAndTariffTables() {
+        ParkingLot lot = new ParkingLot();
+        lot.addFloor(new ParkingFloor(1, 12));
+        lot.addFloor(new ParkingFloor(2, 12));
+        Ticket a = lot.parkVehicle(new Car("KA-01"));
+        Ticket b = lot.parkVehicle(new Truck("KA-02"));
+        assertSame(a, lot.getTickets().lookup(a.id()));
+        assertSame(b, lot.getTickets().findByPlate("KA-02"));
+        assertEquals(2, lot.getTickets().openTickets().size());
+
+        assertEquals(20.0, lot.exitVehicle(a.id()), 1e-9);
+        assertNull(lot.getTickets().lookup(a.id()), "Closed on exit");
+        assertThrows(IllegalArgumentException.class, () -> lot.exitVehicle(a.id()), "A ticket is paid once");
+        Ticket c = lot.parkVehicle(new Car("KA-03")); // Same spot, new id
+        assertSame(a.spot(), c.spot());
+        assertNotEquals(a.id(), c.id());
+        assertNull(lot.getTickets().findByPlate("KA-01"), "The old plate left with its ticket");
+        assertSame(c, lot.getTickets().findByPlate("KA-03"));
+
+        long hour = TariffTable.MILLIS_PER_HOUR;
+        long monday = LocalDate.of(2024, 1, 1).toEpochDay() * 24 * hour; // UTC midnight
+        Ticket t = new Ticket(1, monday, null, null);
+        assertEquals(60.0, new HourlyPricingStrategy().calculateFee(t, monday + 3 * hour + 59 * 60_000), 1e-9);
+        assertEquals(20.0 * 2 + 15.0 * 4 + 10.0, new TieredPricingStrategy().calculateFee(t, monday + 7 * hour), 1e-9);
+        assertEquals(150.0 + 40.0, new TieredPricingStrategy().calculateFee(t, monday + 26 * hour), 1e-9,
+                "Daily cap, then a fresh day");
+        WeekendPricingStrategy weekend = new WeekendPricingStrategy(ZoneOffset.UTC);
+        assertEquals(40.0, weekend.calculateFee(t, monday + 2 * hour), 1e-9);
+        Ticket saturday = new Ticket(2, monday + 5 * 24 * hour, null, null);
+        assertEquals(60.0, weekend.calculateFee(saturday, saturday.entryEpochMillis() + 2 * hour), 1e-9);
+    }
+
+    @Test
+    public void testWeekendBoundaryFollowsDaylightSaving() {
+        ZoneId newYork = ZoneId.of("America/New_York");
+        WeekendPricingStrategy weekend = new WeekendPricingStrategy(newYork);
+        // Friday/Saturday midnight in winter (UTC-5) and in summer (UTC-4), whenever the strategy was built
+        for (LocalDate friday : List.of(LocalDate.of(2024, 1, 5), LocalDate.of(2024, 7, 5))) {
+            long lastWeekdayHalfHour = friday.atTime(23, 30).atZone(newYork).toInstant().toEpochMilli();
+            long firstWeekendHalfHour = friday.plusDays(1).atTime(0, 30).atZone(newYork).toInstant().toEpochMilli();
+            assertFalse(weekend.isWeekend(lastWeekdayHalfHour), "Friday 23:30 on " + friday);
+            assertTrue(weekend.isWeekend(firstWeekendHalfHour), "Saturday 00:30 after " + friday);
+        }
+    }
 }
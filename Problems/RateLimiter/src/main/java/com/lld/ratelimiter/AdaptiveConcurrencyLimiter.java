@@ -0,0 +1,220 @@
+package com.lld.ratelimiter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// --- Concurrency Limit Strategy ---
+// Strategy Pattern: turns completion samples into a new concurrency limit.
+// Called under the limiter's update lock, so implementations need not be thread-safe.
+interface ConcurrencyLimitStrategy {
+    // rttNanos: latency of the finished request; inFlight: concurrency when it finished;
+    // dropped: it timed out / was shed by the backend. A drop carries no latency sample
+    // (rttNanos is 0) and must not feed RTT baselines. Returns the new limit.
+    int update(int currentLimit, long rttNanos, int inFlight, boolean dropped);
+
+    // The range update() keeps the limit in; a limiter's initial limit must lie inside it
+    int minLimit();
+
+    int maxLimit();
+}
+
+enum AdaptiveType {
+    AIMD, GRADIENT
+}
+
+// --- Factory ---
+class ConcurrencyLimitStrategyFactory {
+    public static ConcurrencyLimitStrategy create(AdaptiveType type, int minLimit, int maxLimit) {
+        switch (type) {
+            case AIMD:
+                return new AimdLimit(minLimit, maxLimit, TimeUnit.SECONDS.toNanos(1));
+            case GRADIENT:
+                return new GradientLimit(minLimit, maxLimit);
+            default:
+                throw new IllegalArgumentException("Unknown AdaptiveType");
+        }
+    }
+}
+
+// --- AIMD: additive increase, multiplicative decrease (TCP Reno style) ---
+// +1 per success while the limit is actually being used; x0.9 on a drop or a
+// latency above the timeout. Simple and stable, but it only reacts once the
+// backend is already failing.
+class AimdLimit implements ConcurrencyLimitStrategy {
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long timeoutNanos;
+
+    public AimdLimit(int minLimit, int maxLimit, long timeoutNanos) {
+        checkLimits(minLimit, maxLimit);
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.timeoutNanos = timeoutNanos;
+    }
+
+    @Override
+    public int update(int currentLimit, long rttNanos, int inFlight, boolean dropped) {
+        if (dropped || rttNanos > timeoutNanos)
+            return Math.max(minLimit, (int) (currentLimit * BACKOFF_RATIO));
+        if (inFlight * 2 >= currentLimit) // Don't grow a limit nobody is using
+            return Math.min(maxLimit, currentLimit + 1);
+        return currentLimit;
+    }
+
+    @Override
+    public int minLimit() {
+        return minLimit;
+    }
+
+    @Override
+    public int maxLimit() {
+        return maxLimit;
+    }
+
+    static void checkLimits(int minLimit, int maxLimit) {
+        if (minLimit < 1 || maxLimit < minLimit)
+            throw new IllegalArgumentException("Need 1 <= minLimit <= maxLimit");
+    }
+}
+
+// --- Gradient: react to queueing before failures ---
+// Compares a long-term RTT average (the "no queue" baseline) with each sample:
+//   gradient = clamp(longRtt / rtt, 0.5, 1.0)
+//   newLimit = limit * gradient + sqrt(limit)   // sqrt(limit) = allowed queue headroom
+// When latency rises above baseline the gradient drops below 1 and the limit
+// shrinks before the backend times out; at baseline the headroom lets it probe up.
+// The result is smoothed so one slow request doesn't halve the limit.
+class GradientLimit implements ConcurrencyLimitStrategy {
+    private static final double SMOOTHING = 0.2;
+    private static final int BASELINE_WINDOW = 100; // EWMA span of the long-term RTT, in samples
+
+    private final int minLimit;
+    private final int maxLimit;
+    private double estimatedLimit = -1;
+    private double longRtt = -1;
+
+    public GradientLimit(int minLimit, int maxLimit) {
+        AimdLimit.checkLimits(minLimit, maxLimit);
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    @Override
+    public int update(int currentLimit, long rttNanos, int inFlight, boolean dropped) {
+        if (estimatedLimit < 0)
+            estimatedLimit = currentLimit;
+        double gradient;
+        if (dropped) {
+            gradient = 0.5; // Back off, but leave the RTT baseline alone: a drop has no latency
+        } else {
+            if (longRtt < 0)
+                longRtt = rttNanos;
+            longRtt += (rttNanos - longRtt) / BASELINE_WINDOW;
+            if (longRtt / rttNanos > 2)
+                longRtt = rttNanos * 2.0; // Baseline drifted up during overload: let it recover fast
+
+            gradient = Math.max(0.5, Math.min(1.0, longRtt / rttNanos));
+            if (gradient == 1.0 && inFlight * 2 < estimatedLimit)
+                return (int) estimatedLimit; // App-limited: no evidence the backend can take more
+        }
+
+        double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit,
+                estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING));
+        return (int) estimatedLimit;
+    }
+
+    @Override
+    public int minLimit() {
+        return minLimit;
+    }
+
+    @Override
+    public int maxLimit() {
+        return maxLimit;
+    }
+}
+
+// --- Adaptive Concurrency Limiter ---
+// Limits requests *in flight* to one backend instead of requests per second, and
+// lets the strategy move that limit from observed latency. Keys are not
+// partitioned: the limit protects the backend, whoever calls it.
+// Usage: if (limiter.allowRequest(id)) { try { call(); onSuccess(rtt) } catch { onDropped() } }
+// Every admitted request must report exactly one of onSuccess / onDropped / onIgnore.
+// Admission is a lock-free CAS on the in-flight count; only completions take the
+// (short) update lock, which is private to the limiter even if callers share a strategy.
+// A strategy with state (GradientLimit) should not be shared, though: its samples would mix.
+class AdaptiveConcurrencyLimiter implements RateLimiter {
+    private final ConcurrencyLimitStrategy strategy;
+    private final Object updateLock = new Object();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final RateLimiterMetrics metrics = new RateLimiterMetrics();
+    private volatile int limit;
+
+    public AdaptiveConcurrencyLimiter(AdaptiveType type, int initialLimit, int minLimit, int maxLimit) {
+        this(ConcurrencyLimitStrategyFactory.create(type, minLimit, maxLimit), initialLimit);
+    }
+
+    public AdaptiveConcurrencyLimiter(ConcurrencyLimitStrategy strategy, int initialLimit) {
+        if (initialLimit < strategy.minLimit() || initialLimit > strategy.maxLimit())
+            throw new IllegalArgumentException("initialLimit must be within [" + strategy.minLimit() + ", "
+                    + strategy.maxLimit() + "]");
+        this.strategy = strategy;
+        this.limit = initialLimit;
+    }
+
+    @Override
+    public boolean allowRequest(String userId) {
+        long startedAt = metrics.startTimer();
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                metrics.record(userId, false, startedAt);
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                metrics.record(userId, true, startedAt);
+                return true;
+            }
+        }
+    }
+
+    // Completion callbacks for an admitted request
+    public void onSuccess(long rttNanos) {
+        complete(rttNanos, false);
+    }
+
+    public void onDropped() {
+        complete(0, true);
+    }
+
+    // Released without a usable latency sample (e.g. client-side cancel)
+    public void onIgnore() {
+        inFlight.decrementAndGet();
+    }
+
+    private void complete(long rttNanos, boolean dropped) {
+        int concurrency = inFlight.getAndDecrement();
+        synchronized (updateLock) {
+            limit = strategy.update(limit, dropped ? 0 : Math.max(1, rttNanos), concurrency, dropped);
+        }
+    }
+
+    public int limit() {
+        return limit;
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    public RateLimiterStats stats() {
+        return metrics.snapshot();
+    }
+
+    public void showMetrics() {
+        metrics.printStats();
+    }
+}
@@ -0,0 +1,253 @@
+package com.lld.ratelimiter;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+// --- Cluster Mode: token leasing ---
+// N nodes each running their own RateLimiterService enforce N x the limit. Here the
+// TokenCoordinator owns the one global bucket per key and each node leases chunks
+// from it. Requests are served from the local lease with a single CAS; when the
+// lease runs low a background renewal tops it up, so the coordinator sees roughly
+// one call per `chunkSize` requests. Fetches run on a bounded pool of renewer threads,
+// at most one per key at a time, so keys that start cold together fetch in parallel
+// instead of queueing behind each other; a caller whose lease is completely empty
+// waits for its key's fetch for at most FETCH_WAIT and then fails closed. No lock is held across the
+// network call, so a hung coordinator costs each caller a bounded wait.
+// Correctness: a node can only admit tokens it leased, and the coordinator only
+// leases what its bucket issued, so the cluster never exceeds the global limit.
+// Every grant expires leaseTtl after it arrived, on its own clock: a renewal adds a
+// new grant instead of extending old leftovers, so an idle node can't hoard a burst.
+// A lease keeps only the newest grant and the one before it (renewals start at the
+// low watermark, so the older one holds at most a few tokens); older leftovers are
+// forfeited - under-admitting slightly, never over-admitting. Expired leases are
+// swept by the limiter's own scheduler every leaseTtl.
+class ClusterRateLimiter implements RateLimiter {
+    private static final long FAILURE_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(100); // Fail closed
+    private static final long FETCH_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final int DEFAULT_FETCH_THREADS = 16;
+
+    // Tokens from one coordinator answer, usable until expiresAt
+    private static final class Grant {
+        final AtomicLong remaining;
+        final long expiresAt;
+        volatile Grant previous; // The grant this one superseded; its leftovers are used first
+
+        Grant(long tokens, long expiresAt, Grant previous) {
+            this.remaining = new AtomicLong(tokens);
+            this.expiresAt = expiresAt;
+            this.previous = previous;
+        }
+
+        boolean take(long now) {
+            while (true) {
+                long left = remaining.get();
+                if (left <= 0)
+                    return false;
+                if (now - expiresAt >= 0) {
+                    remaining.set(0); // Stale grant: drop it, never over-admit
+                    return false;
+                }
+                if (remaining.compareAndSet(left, left - 1))
+                    return true;
+            }
+        }
+
+        long available(long now) {
+            return now - expiresAt < 0 ? Math.max(0, remaining.get()) : 0;
+        }
+    }
+
+    private static final class Lease {
+        final AtomicReference<CompletableFuture<Void>> renewal = new AtomicReference<>(); // In-flight fetch
+        volatile Grant current; // Written only by the renewal that owns `renewal`
+        volatile long retryAt; // Coordinator is dry until then
+
+        Lease(long now) {
+            this.current = new Grant(0, now, null);
+            this.retryAt = now;
+        }
+    }
+
+    private final TokenCoordinator coordinator;
+    private final Ticker ticker;
+    private final int chunkSize;
+    private final int lowWatermark;
+    private final long leaseTtlNanos;
+    private final ConcurrentHashMap<String, Lease> leases = new ConcurrentHashMap<>();
+    private final ExecutorService renewers; // Coordinator fetches; queue holds at most one task per key
+    private final ScheduledExecutorService sweeper; // Expired-lease sweep
+    private final RateLimiterMetrics metrics = new RateLimiterMetrics();
+
+    public ClusterRateLimiter(TokenCoordinator coordinator, int chunkSize, long leaseTtl, TimeUnit unit) {
+        this(coordinator, chunkSize, leaseTtl, unit, Ticker.system());
+    }
+
+    public ClusterRateLimiter(TokenCoordinator coordinator, int chunkSize, long leaseTtl, TimeUnit unit,
+            Ticker ticker) {
+        this(coordinator, chunkSize, leaseTtl, unit, ticker, DEFAULT_FETCH_THREADS);
+    }
+
+    public ClusterRateLimiter(TokenCoordinator coordinator, int chunkSize, long leaseTtl, TimeUnit unit,
+            Ticker ticker, int fetchThreads) {
+        if (chunkSize <= 0 || leaseTtl <= 0 || fetchThreads <= 0)
+            throw new IllegalArgumentException("chunkSize, leaseTtl and fetchThreads must be positive");
+        this.coordinator = coordinator;
+        this.ticker = ticker;
+        this.chunkSize = chunkSize;
+        this.lowWatermark = chunkSize / 4;
+        this.leaseTtlNanos = unit.toNanos(leaseTtl);
+        this.renewers = Executors.newFixedThreadPool(fetchThreads, daemon("rate-limiter-lease-renewer"));
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(daemon("rate-limiter-lease-sweeper"));
+        sweeper.scheduleWithFixedDelay(this::sweepExpiredLeases, leaseTtlNanos, leaseTtlNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    @Override
+    public boolean allowRequest(String userId) {
+        long startedAt = metrics.startTimer();
+        boolean allowed = tryTake(userId);
+        metrics.record(userId, allowed, startedAt);
+        return allowed;
+    }
+
+    private boolean tryTake(String key) {
+        Lease lease = leases.get(key);
+        if (lease == null)
+            lease = leases.computeIfAbsent(key, k -> new Lease(ticker.read()));
+        while (true) {
+            long now = ticker.read();
+            Grant current = lease.current;
+            Grant older = current.previous;
+            if ((older != null && older.take(now)) || current.take(now)) { // Oldest tokens first
+                if (current.remaining.get() <= lowWatermark)
+                    renewAsync(key, lease);
+                return true;
+            }
+            if (now - lease.retryAt < 0)
+                return false; // Globally dry: reject locally, no network call
+            if (!awaitRenewal(key, lease))
+                return false;
+            // Fetch finished: re-check the lease (tokens, or a retryAt if it came back dry)
+        }
+    }
+
+    private void renewAsync(String key, Lease lease) {
+        if (ticker.read() - lease.retryAt >= 0)
+            renew(key, lease);
+    }
+
+    private boolean awaitRenewal(String key, Lease lease) {
+        try {
+            renew(key, lease).get(FETCH_WAIT_NANOS, TimeUnit.NANOSECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            lease.retryAt = ticker.read() + FAILURE_BACKOFF_NANOS; // Coordinator slow: others reject without waiting
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            return false;
+        }
+    }
+
+    // Joins the key's in-flight fetch, or starts one on the renewer pool
+    private CompletableFuture<Void> renew(String key, Lease lease) {
+        CompletableFuture<Void> inFlight = lease.renewal.get();
+        if (inFlight != null)
+            return inFlight;
+        CompletableFuture<Void> mine = new CompletableFuture<>();
+        if (!lease.renewal.compareAndSet(null, mine)) {
+            inFlight = lease.renewal.get();
+            return inFlight != null ? inFlight : CompletableFuture.completedFuture(null); // Just finished
+        }
+        try {
+            renewers.execute(() -> {
+                try {
+                    apply(lease, fetch(key));
+                } finally {
+                    lease.renewal.set(null); // Before completing, so woken callers may start the next fetch
+                    mine.complete(null);
+                }
+            });
+        } catch (RejectedExecutionException e) { // Shut down
+            apply(lease, new LeaseGrant(0, FAILURE_BACKOFF_NANOS));
+            lease.renewal.set(null);
+            mine.complete(null);
+        }
+        return mine;
+    }
+
+    private LeaseGrant fetch(String key) {
+        try {
+            return coordinator.lease(key, chunkSize);
+        } catch (RuntimeException e) {
+            return new LeaseGrant(0, FAILURE_BACKOFF_NANOS); // Coordinator unreachable: fail closed
+        }
+    }
+
+    private boolean apply(Lease lease, LeaseGrant grant) {
+        long now = ticker.read();
+        if (grant.tokens() <= 0) {
+            lease.retryAt = now + grant.retryAfterNanos();
+            return false;
+        }
+        Grant superseded = lease.current;
+        superseded.previous = null; // Forfeit the grant before it
+        lease.current = new Grant(grant.tokens(), now + leaseTtlNanos, superseded);
+        return true;
+    }
+
+    // Unexpired leased tokens for a key (tests, diagnostics)
+    long leasedTokens(String key) {
+        Lease lease = leases.get(key);
+        if (lease == null)
+            return 0;
+        long now = ticker.read();
+        Grant current = lease.current;
+        Grant older = current.previous;
+        return current.available(now) + (older == null ? 0 : older.available(now));
+    }
+
+    // Drops leases that have expired and aren't renewing; their tokens are forfeited
+    public int sweepExpiredLeases() {
+        int removed = 0;
+        long now = ticker.read();
+        for (var entry : leases.entrySet()) {
+            Lease lease = entry.getValue();
+            if (now - lease.current.expiresAt >= 0 && lease.renewal.get() == null && leases.remove(entry.getKey(), lease))
+                removed++;
+        }
+        return removed;
+    }
+
+    public void shutdown() {
+        sweeper.shutdownNow();
+        renewers.shutdownNow();
+    }
+
+    public RateLimiterStats stats() {
+        return metrics.snapshot();
+    }
+
+    public void showMetrics() {
+        metrics.printStats();
+    }
+}
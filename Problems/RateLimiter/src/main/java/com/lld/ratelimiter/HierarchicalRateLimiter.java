@@ -0,0 +1,73 @@
+package com.lld.ratelimiter;
+
+import java.util.List;
+import java.util.function.Function;
+
+// One level of a quota tree: the rule, plus how a request key maps to this level's
+// key (user -> itself, user -> tenant, anything -> "global").
+record QuotaLevel(String name, RateLimitRule rule, Function<String, String> keyOf) {
+}
+
+// --- Hierarchical Quotas (user -> tenant -> global) ---
+// Each level is an ordinary RateLimiterService, so every key keeps its own lock-free
+// (or per-key) state. A request takes its permits level by level, most specific first;
+// if a level rejects, the permits already taken at earlier levels are refunded.
+// Between the take and the refund a concurrent request may briefly see those permits
+// as used (a transient false reject) - but permits are never leaked or double-granted.
+class HierarchicalRateLimiter implements RateLimiter {
+    private final QuotaLevel[] quotas;
+    private final RateLimiterService[] levels; // levels[i] enforces quotas[i].rule()
+    private final RateLimiterMetrics metrics = new RateLimiterMetrics();
+
+    public HierarchicalRateLimiter(List<QuotaLevel> quotaLevels) {
+        if (quotaLevels.isEmpty())
+            throw new IllegalArgumentException("At least one quota level is required");
+        this.quotas = quotaLevels.toArray(new QuotaLevel[0]);
+        this.levels = new RateLimiterService[quotas.length];
+        for (int i = 0; i < quotas.length; i++) {
+            levels[i] = new RateLimiterService(quotas[i].rule());
+        }
+    }
+
+    @Override
+    public boolean allowRequest(String requestKey) {
+        return allowRequest(requestKey, 1);
+    }
+
+    public boolean allowRequest(String requestKey, int permits) {
+        return rejectingLevel(requestKey, permits) == null;
+    }
+
+    // Null when every level granted; otherwise the name of the first level that rejected
+    public String rejectingLevel(String requestKey, int permits) {
+        long startedAt = metrics.startTimer();
+        for (int i = 0; i < levels.length; i++) {
+            if (!levels[i].tryAcquire(quotas[i].keyOf().apply(requestKey), permits)) {
+                // Rollback: undo the deductions made at the more specific levels
+                for (int j = i - 1; j >= 0; j--) {
+                    levels[j].refund(quotas[j].keyOf().apply(requestKey), permits);
+                }
+                metrics.record(requestKey, false, startedAt);
+                return quotas[i].name();
+            }
+        }
+        metrics.record(requestKey, true, startedAt);
+        return null;
+    }
+
+    public int sweepIdleBuckets() {
+        int removed = 0;
+        for (RateLimiterService level : levels) {
+            removed += level.sweepIdleBuckets();
+        }
+        return removed;
+    }
+
+    public RateLimiterStats stats() {
+        return metrics.snapshot();
+    }
+
+    public void showMetrics() {
+        metrics.printStats();
+    }
+}
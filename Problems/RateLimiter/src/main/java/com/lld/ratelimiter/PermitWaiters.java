@@ -0,0 +1,119 @@
+package com.lld.ratelimiter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// --- Fair Waiting (acquire / acquireAsync) ---
+// Each key with waiters gets a FIFO queue and exactly one pending "drain" task.
+// The drain grants permits to the head of the queue while it can, then asks the
+// algorithm how long until the head fits (nanosUntilAvailable) and re-schedules
+// itself for that instant. No thread spins or polls; blocked callers just park on
+// their future, which is cheap for virtual threads.
+// New arrivals try for permits under the key's queue lock, and only while the queue
+// is empty: the check and the grab are one step, so once someone is waiting nobody
+// can barge ahead of them.
+class PermitWaiters {
+    private static final long MIN_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final long MAX_PARK_NANOS = TimeUnit.SECONDS.toNanos(1); // Re-check bound (e.g. REJECT overflow)
+
+    private static final class Waiter {
+        final int permits;
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        Waiter(int permits) {
+            this.permits = permits;
+        }
+    }
+
+    // Guarded by its own monitor; `closed` once drained empty and unlinked from the map
+    private static final class WaitQueue {
+        final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+        boolean closed;
+    }
+
+    private final RateLimiterService service;
+    private final ConcurrentHashMap<String, WaitQueue> queues = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    public PermitWaiters(RateLimiterService service) {
+        this.service = service;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "rate-limiter-waiters");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public CompletableFuture<Void> acquireAsync(String key, int permits) {
+        while (true) {
+            WaitQueue queue = queues.computeIfAbsent(key, k -> new WaitQueue());
+            synchronized (queue) {
+                if (queue.closed)
+                    continue; // Lost a race with the final drain; use the fresh queue
+                // Fast path: nobody queued for this key and permits are available right now
+                if (queue.waiters.isEmpty() && service.tryAcquire(key, permits)) {
+                    queue.closed = true; // Nobody waits on it: unlink, like the final drain does
+                    queues.remove(key, queue);
+                    return CompletableFuture.completedFuture(null);
+                }
+                Waiter waiter = new Waiter(permits); // Only callers that actually wait allocate one
+                queue.waiters.add(waiter);
+                if (queue.waiters.size() == 1)
+                    scheduler.execute(() -> drain(key, queue)); // First waiter starts the drain loop
+                return waiter.future;
+            }
+        }
+    }
+
+    private void drain(String key, WaitQueue queue) {
+        List<Waiter> granted = new ArrayList<>();
+        synchronized (queue) {
+            long delay = 0;
+            while (!queue.waiters.isEmpty()) {
+                Waiter head = queue.waiters.peek();
+                if (head.future.isDone()) {
+                    queue.waiters.poll(); // Cancelled or timed out while queued
+                } else if (service.tryAcquire(key, head.permits)) {
+                    granted.add(queue.waiters.poll());
+                } else {
+                    delay = service.nanosUntilAvailable(key, head.permits);
+                    break;
+                }
+            }
+            if (queue.waiters.isEmpty()) {
+                queue.closed = true;
+                queues.remove(key, queue);
+            } else {
+                long park = Math.min(MAX_PARK_NANOS, Math.max(MIN_PARK_NANOS, delay));
+                scheduler.schedule(() -> drain(key, queue), park, TimeUnit.NANOSECONDS);
+            }
+        }
+        // Complete outside the lock: continuations may run inline on this thread
+        for (Waiter waiter : granted) {
+            if (!waiter.future.complete(null))
+                service.refund(key, waiter.permits); // Cancelled after we took its permits
+        }
+    }
+
+    // Stops the drain loop and fails everyone still queued, so no caller parks forever
+    public void shutdown() {
+        scheduler.shutdownNow();
+        IllegalStateException stopped = new IllegalStateException("Rate limiter shut down");
+        for (WaitQueue queue : queues.values()) {
+            synchronized (queue) {
+                queue.closed = true;
+                for (Waiter waiter : queue.waiters) {
+                    waiter.future.completeExceptionally(stopped);
+                }
+                queue.waiters.clear();
+            }
+        }
+        queues.clear();
+    }
+}
@@ -0,0 +1,343 @@
+package com.lld.ratelimiter;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+// --- Rate Limit Algorithm ---
+// Strategy Pattern: the per-key state behind RateLimiterService. One instance per key,
+// created by RateLimitAlgorithmFactory from the service's RateLimitRule.
+interface RateLimitAlgorithm {
+    // All-or-nothing: grants `permits` units or none. Costs above the rule limit never fit.
+    boolean tryConsume(long permits);
+
+    default boolean tryConsume() {
+        return tryConsume(1);
+    }
+
+    // Gives back permits granted by an earlier tryConsume, e.g. when a later level of a
+    // hierarchical check rejects. Credit never exceeds the limit; a no-op once retired.
+    void refund(long permits);
+
+    // How long until tryConsume(permits) could succeed: 0 if it may succeed now,
+    // Long.MAX_VALUE if it never can. A hint for schedulers - it does not reserve anything.
+    long nanosUntilAvailable(long permits);
+
+    // Retires the state if it carries no history, i.e. it would behave exactly like a new
+    // instance. A retired state grants nothing, so the owner can drop it without leaking permits.
+    boolean tryRetireIfIdle();
+
+    boolean isRetired();
+}
+
+enum AlgorithmType {
+    TOKEN_BUCKET, SLIDING_WINDOW_COUNTER, SLIDING_LOG, GCRA
+}
+
+// `limit` permits per `window`. Token bucket and GCRA read it as burst = limit,
+// sustained rate = limit / window; the sliding algorithms as a hard cap per rolling window.
+// Per-key states keep a reference to the rule and read the limit, window and ticker
+// from it, so none of them is copied into every key.
+record RateLimitRule(AlgorithmType algorithm, int limit, long window, TimeUnit unit, Ticker ticker) {
+    public RateLimitRule {
+        if (limit <= 0 || window <= 0)
+            throw new IllegalArgumentException("limit and window must be positive");
+    }
+
+    public RateLimitRule(AlgorithmType algorithm, int limit, long window, TimeUnit unit) {
+        this(algorithm, limit, window, unit, Ticker.system());
+    }
+
+    // Legacy (capacity, refillRate/sec) token bucket expressed as a rule
+    public static RateLimitRule tokenBucket(int capacity, double refillRate) {
+        if (!(refillRate > 0))
+            throw new IllegalArgumentException("refillRate must be positive");
+        return new RateLimitRule(AlgorithmType.TOKEN_BUCKET, capacity,
+                Math.max(1, Math.round(capacity * 1_000_000_000.0 / refillRate)), TimeUnit.NANOSECONDS);
+    }
+
+    public long windowNanos() {
+        return unit.toNanos(window);
+    }
+
+    public long nanosPerPermit() {
+        return Math.max(1, windowNanos() / limit);
+    }
+}
+
+// --- Factory ---
+class RateLimitAlgorithmFactory {
+    private static final int SUB_WINDOWS = 10;
+
+    public static RateLimitAlgorithm create(RateLimitRule rule) {
+        switch (rule.algorithm()) {
+            case TOKEN_BUCKET:
+                return new TokenBucket(rule);
+            case SLIDING_WINDOW_COUNTER:
+                return new SlidingWindowCounter(rule, SUB_WINDOWS);
+            case SLIDING_LOG:
+                return new SlidingLog(rule);
+            case GCRA:
+                return new GcraLimiter(rule);
+            default:
+                throw new IllegalArgumentException("Unknown AlgorithmType");
+        }
+    }
+
+    static void checkPermits(long permits) {
+        if (permits <= 0)
+            throw new IllegalArgumentException("permits must be positive");
+    }
+}
+
+// --- Sliding Window Counter: ring of sub-window counts ---
+// The window is split into N slots; the ring holds the last N slot counts and a
+// running total. Memory is O(N) ints per key regardless of the limit, and the
+// boundary error is at most one slot (window / N) instead of a whole window.
+// Several words change together, so each key is guarded by its own monitor.
+class SlidingWindowCounter implements RateLimitAlgorithm {
+    private final RateLimitRule rule;
+    private final long slotNanos;
+    private final int[] counts;
+    private long headSlot; // Absolute slot index of the newest ring entry
+    private int total;
+    private boolean retired;
+
+    public SlidingWindowCounter(RateLimitRule rule, int subWindows) {
+        this.rule = rule;
+        this.slotNanos = Math.max(1, rule.windowNanos() / subWindows);
+        this.counts = new int[subWindows];
+        this.headSlot = Math.floorDiv(rule.ticker().read(), slotNanos);
+    }
+
+    @Override
+    public synchronized boolean tryConsume(long permits) {
+        RateLimitAlgorithmFactory.checkPermits(permits);
+        if (retired)
+            return false;
+        advance(Math.floorDiv(rule.ticker().read(), slotNanos));
+        if (permits > rule.limit() - total)
+            return false;
+        counts[Math.floorMod(headSlot, counts.length)] += (int) permits;
+        total += (int) permits;
+        return true;
+    }
+
+    // Un-counts the newest grants first; grants that already slid out need no refund
+    @Override
+    public synchronized void refund(long permits) {
+        if (retired)
+            return;
+        long remaining = Math.min(permits, total);
+        for (int k = 0; k < counts.length && remaining > 0; k++) {
+            int i = Math.floorMod(headSlot - k, counts.length);
+            int take = (int) Math.min(remaining, counts[i]);
+            counts[i] -= take;
+            total -= take;
+            remaining -= take;
+        }
+    }
+
+    // Slots expire oldest-first; find the one whose expiry frees enough room
+    @Override
+    public synchronized long nanosUntilAvailable(long permits) {
+        if (permits > rule.limit())
+            return Long.MAX_VALUE;
+        if (retired)
+            return 0;
+        long now = rule.ticker().read();
+        advance(Math.floorDiv(now, slotNanos));
+        long needed = total + permits - rule.limit();
+        for (int k = counts.length - 1; k >= 0 && needed > 0; k--) {
+            long slot = headSlot - k;
+            needed -= counts[Math.floorMod(slot, counts.length)];
+            if (needed <= 0)
+                return Math.max(0, (slot + counts.length) * slotNanos - now);
+        }
+        return 0;
+    }
+
+    // Expires the slots that slid out of the window since the last call
+    private void advance(long slot) {
+        long gap = slot - headSlot;
+        if (gap <= 0)
+            return;
+        if (gap >= counts.length) {
+            Arrays.fill(counts, 0);
+            total = 0;
+        } else {
+            for (long s = headSlot + 1; s <= slot; s++) {
+                int i = Math.floorMod(s, counts.length);
+                total -= counts[i];
+                counts[i] = 0;
+            }
+        }
+        headSlot = slot;
+    }
+
+    @Override
+    public synchronized boolean tryRetireIfIdle() {
+        if (retired)
+            return false;
+        advance(Math.floorDiv(rule.ticker().read(), slotNanos));
+        retired = total == 0;
+        return retired;
+    }
+
+    @Override
+    public synchronized boolean isRetired() {
+        return retired;
+    }
+}
+
+// --- Sliding Log: exact, one timestamp per granted request ---
+// A ring of the last `limit` grant times. Exact rolling-window semantics, but
+// memory is O(limit) longs per key - only worth it for small limits.
+class SlidingLog implements RateLimitAlgorithm {
+    private final RateLimitRule rule;
+    private final long[] log;
+    private int head; // Oldest entry
+    private int size;
+    private boolean retired;
+
+    public SlidingLog(RateLimitRule rule) {
+        this.rule = rule;
+        this.log = new long[rule.limit()];
+    }
+
+    // A weighted grant logs `permits` entries at the same instant
+    @Override
+    public synchronized boolean tryConsume(long permits) {
+        RateLimitAlgorithmFactory.checkPermits(permits);
+        if (retired)
+            return false;
+        long now = rule.ticker().read();
+        expire(now);
+        if (permits > log.length - size)
+            return false;
+        for (int i = 0; i < permits; i++) {
+            log[(head + size) % log.length] = now;
+            size++;
+        }
+        return true;
+    }
+
+    // Drops the newest entries - the ones this caller just logged
+    @Override
+    public synchronized void refund(long permits) {
+        if (!retired)
+            size -= (int) Math.min(permits, size);
+    }
+
+    @Override
+    public synchronized long nanosUntilAvailable(long permits) {
+        if (permits > log.length)
+            return Long.MAX_VALUE;
+        if (retired)
+            return 0;
+        long now = rule.ticker().read();
+        expire(now);
+        long needed = size + permits - log.length;
+        if (needed <= 0)
+            return 0;
+        long freedBy = log[(int) ((head + needed - 1) % log.length)];
+        return Math.max(0, freedBy + rule.windowNanos() - now);
+    }
+
+    private void expire(long now) {
+        long windowNanos = rule.windowNanos();
+        while (size > 0 && now - log[head] >= windowNanos) {
+            head = (head + 1) % log.length;
+            size--;
+        }
+    }
+
+    @Override
+    public synchronized boolean tryRetireIfIdle() {
+        if (retired)
+            return false;
+        expire(rule.ticker().read());
+        retired = size == 0;
+        return retired;
+    }
+
+    @Override
+    public synchronized boolean isRetired() {
+        return retired;
+    }
+}
+
+// --- GCRA (Generic Cell Rate Algorithm) ---
+// Tracks only the Theoretical Arrival Time (TAT) of the next request. A request at
+// `now` conforms if max(TAT, now) + T - now <= window, where T = window / limit is
+// the emission interval; granting it advances TAT by T. Same shaping as a token
+// bucket, but the config lives in the shared rule and the long is inlined in the
+// object (field updater, no AtomicLong), so a key costs one small object.
+class GcraLimiter implements RateLimitAlgorithm {
+    private static final long RETIRED = Long.MIN_VALUE;
+    private static final AtomicLongFieldUpdater<GcraLimiter> TAT = AtomicLongFieldUpdater
+            .newUpdater(GcraLimiter.class, "tat");
+
+    private final RateLimitRule rule;
+    private volatile long tat;
+
+    public GcraLimiter(RateLimitRule rule) {
+        this.rule = rule;
+        this.tat = rule.ticker().read(); // TAT <= now: full burst available
+    }
+
+    @Override
+    public boolean tryConsume(long permits) {
+        RateLimitAlgorithmFactory.checkPermits(permits);
+        if (permits > rule.limit())
+            return false;
+        long cost = permits * rule.nanosPerPermit();
+        long tolerance = rule.windowNanos();
+        while (true) {
+            long now = rule.ticker().read();
+            long current = tat;
+            if (current == RETIRED)
+                return false;
+            long next = Math.max(current, now) + cost;
+            if (next - now > tolerance)
+                return false; // Would exceed the burst allowance
+            if (TAT.compareAndSet(this, current, next))
+                return true;
+        }
+    }
+
+    @Override
+    public void refund(long permits) {
+        long credit = Math.min(permits, rule.limit()) * rule.nanosPerPermit();
+        while (true) {
+            long current = tat;
+            if (current == RETIRED || TAT.compareAndSet(this, current, current - credit))
+                return; // TAT below `now` is harmless: max(TAT, now) caps the credit
+        }
+    }
+
+    @Override
+    public long nanosUntilAvailable(long permits) {
+        if (permits > rule.limit())
+            return Long.MAX_VALUE;
+        long current = tat;
+        if (current == RETIRED)
+            return 0;
+        long now = rule.ticker().read();
+        long next = Math.max(current, now) + permits * rule.nanosPerPermit();
+        return Math.max(0, next - now - rule.windowNanos());
+    }
+
+    @Override
+    public boolean tryRetireIfIdle() {
+        long current = tat;
+        return current != RETIRED
+                && current - rule.ticker().read() <= 0
+                && TAT.compareAndSet(this, current, RETIRED);
+    }
+
+    @Override
+    public boolean isRetired() {
+        return tat == RETIRED;
+    }
+}
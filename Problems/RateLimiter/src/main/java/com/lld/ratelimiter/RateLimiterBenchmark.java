@@ -0,0 +1,206 @@
+package com.lld.ratelimiter;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// --- Benchmark Harness ---
+// Plain-Java harness (no JMH in this repo's offline build); indicative numbers only.
+// Run with a fixed heap (-Xms = -Xmx) and compare runs against each other, not across machines.
+//
+//   java com.lld.ratelimiter.RateLimiterBenchmark algorithms
+//       Per-key heap footprint and single-thread ns/op of each RateLimitAlgorithm.
+//   java com.lld.ratelimiter.RateLimiterBenchmark service [--keys 1,1000,1000000,10000000]
+//       [--threads 1,4,16,64] [--seconds 3] [--skew 1.0] [--algorithm TOKEN_BUCKET]
+//       Drives RateLimiterService.allowRequest with a Zipf-skewed key stream for every
+//       (keys, threads) pair; reports ops/s, drop rate and bytes allocated per op.
+public class RateLimiterBenchmark {
+    private static final int KEYS = 200_000;
+    private static final int HOT_KEYS = 1_024; // Fits in cache: measures the algorithm, not memory
+    private static final int OPS = 20_000_000;
+    private static final int KEY_STREAM = 1 << 20; // Pre-sampled key indices, shared by all threads
+
+    public static void main(String[] args) throws InterruptedException {
+        String mode = args.length == 0 ? "all" : args[0];
+        if (mode.equals("algorithms") || mode.equals("all"))
+            runAlgorithms();
+        if (mode.equals("service") || mode.equals("all"))
+            runService(args);
+    }
+
+    // --- Algorithm comparison ---
+    static void runAlgorithms() {
+        System.out.println("--- Rate Limit Algorithm Benchmark (100 req / 1s per key) ---");
+        System.out.printf("%-24s %14s %10s%n", "algorithm", "bytes/key", "ns/op");
+        for (AlgorithmType type : AlgorithmType.values()) {
+            RateLimitRule rule = new RateLimitRule(type, 100, 1, TimeUnit.SECONDS);
+            long bytesPerKey = bytesPerKey(rule);
+            double nsPerOp = nsPerOp(rule);
+            System.out.printf("%-24s %14d %10.1f%n", type, bytesPerKey, nsPerOp);
+        }
+    }
+
+    // Retained heap of KEYS fresh states, divided per key (excludes the map entry itself)
+    static long bytesPerKey(RateLimitRule rule) {
+        RateLimitAlgorithm[] states = new RateLimitAlgorithm[KEYS];
+        long before = usedHeap();
+        for (int i = 0; i < KEYS; i++) {
+            states[i] = RateLimitAlgorithmFactory.create(rule);
+        }
+        long after = usedHeap();
+        if (states[KEYS - 1] == null)
+            throw new IllegalStateException(); // Keeps the array reachable across the measurement
+        return (after - before) / KEYS;
+    }
+
+    // Round-robin over a hot key set: a mix of grants and rejections once keys drain
+    static double nsPerOp(RateLimitRule rule) {
+        RateLimitAlgorithm[] states = new RateLimitAlgorithm[HOT_KEYS];
+        for (int i = 0; i < HOT_KEYS; i++) {
+            states[i] = RateLimitAlgorithmFactory.create(rule);
+        }
+        long sink = 0;
+        for (int i = 0; i < OPS / 10; i++) { // Warm-up for the JIT
+            sink += states[i & (HOT_KEYS - 1)].tryConsume() ? 1 : 0;
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < OPS; i++) {
+            sink += states[i & (HOT_KEYS - 1)].tryConsume() ? 1 : 0;
+        }
+        long elapsed = System.nanoTime() - start;
+        if (sink < 0)
+            System.out.println(sink); // Defeat dead-code elimination
+        return (double) elapsed / OPS;
+    }
+
+    // --- Service throughput under a skewed key distribution ---
+    static void runService(String[] args) throws InterruptedException {
+        int[] keyCounts = intList(flag(args, "--keys", "1,1000,1000000"));
+        int[] threadCounts = intList(flag(args, "--threads", "1,4,16,64"));
+        int seconds = Integer.parseInt(flag(args, "--seconds", "3"));
+        double skew = Double.parseDouble(flag(args, "--skew", "1.0"));
+        AlgorithmType algorithm = AlgorithmType.valueOf(flag(args, "--algorithm", "TOKEN_BUCKET"));
+
+        System.out.printf("--- RateLimiterService Benchmark (%s, 100 req / 1s per key, zipf s=%.2f) ---%n",
+                algorithm, skew);
+        System.out.printf("%10s %8s %14s %10s %12s%n", "keys", "threads", "ops/s", "drop %", "bytes/op");
+        for (int keys : keyCounts) {
+            String[] keyNames = new String[keys];
+            for (int i = 0; i < keys; i++) {
+                keyNames[i] = "client-" + i;
+            }
+            int[] stream = zipfStream(keys, skew, new Random(42));
+            for (int threads : threadCounts) {
+                RateLimiterService service = new RateLimiterService(
+                        new RateLimitRule(algorithm, 100, 1, TimeUnit.SECONDS));
+                runPhase(service, keyNames, stream, threads, Math.max(1, seconds / 2)); // Warm-up: JIT + bucket creation
+                Result r = runPhase(service, keyNames, stream, threads, seconds);
+                System.out.printf("%10d %8d %14.0f %10.1f %12.1f%n", keys, threads,
+                        r.ops / (r.nanos / 1e9), 100.0 * r.dropped / r.ops, (double) r.allocatedBytes / r.ops);
+            }
+        }
+    }
+
+    private record Result(long ops, long dropped, long allocatedBytes, long nanos) {
+    }
+
+    private static Result runPhase(RateLimiterService service, String[] keyNames, int[] stream, int threads,
+            int seconds) throws InterruptedException {
+        AtomicLong ops = new AtomicLong();
+        AtomicLong dropped = new AtomicLong();
+        AtomicLong allocated = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        long[] deadline = new long[1];
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int offset = (int) ((long) t * stream.length / threads); // Threads walk different parts of the stream
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long allocBefore = threadAllocatedBytes();
+                long n = 0;
+                long rejected = 0;
+                int i = offset;
+                while (true) {
+                    for (int batch = 0; batch < 1024; batch++) {
+                        if (!service.allowRequest(keyNames[stream[i]]))
+                            rejected++;
+                        i = (i + 1) & (stream.length - 1);
+                    }
+                    n += 1024;
+                    if (System.nanoTime() - deadline[0] >= 0)
+                        break;
+                }
+                allocated.addAndGet(threadAllocatedBytes() - allocBefore);
+                ops.addAndGet(n);
+                dropped.addAndGet(rejected);
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        long begin = System.nanoTime();
+        deadline[0] = begin + TimeUnit.SECONDS.toNanos(seconds);
+        start.countDown(); // Happens-before: workers see deadline[0]
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return new Result(ops.get(), dropped.get(), allocated.get(), System.nanoTime() - begin);
+    }
+
+    // Approximate Zipf(s) over [0, n) by inverting the continuous generalized harmonic
+    // H(x) = (x^(1-s) - 1) / (1-s) (ln x when s = 1). O(1) per sample, no n-sized table,
+    // so 10M keys cost nothing to set up. Index 0 is the hottest key.
+    static int[] zipfStream(int n, double s, Random random) {
+        int[] stream = new int[KEY_STREAM];
+        for (int i = 0; i < KEY_STREAM; i++) {
+            double x;
+            if (Math.abs(s - 1.0) < 1e-9) {
+                x = Math.exp(random.nextDouble() * Math.log(n + 1.0));
+            } else {
+                double hn = (Math.pow(n + 1.0, 1 - s) - 1) / (1 - s);
+                x = Math.pow(random.nextDouble() * hn * (1 - s) + 1, 1 / (1 - s));
+            }
+            stream[i] = (int) Math.min(n - 1, Math.max(0, (long) x - 1));
+        }
+        return stream;
+    }
+
+    // HotSpot-specific per-thread allocation counter; reports 0 where unsupported
+    private static long threadAllocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean)
+            return bean.getCurrentThreadAllocatedBytes();
+        return 0;
+    }
+
+    private static String flag(String[] args, String name, String fallback) {
+        for (int i = 0; i + 1 < args.length; i++) {
+            if (args[i].equals(name))
+                return args[i + 1];
+        }
+        return fallback;
+    }
+
+    private static int[] intList(String csv) {
+        String[] parts = csv.split(",");
+        int[] values = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            values[i] = Integer.parseInt(parts[i].trim());
+        }
+        return values;
+    }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
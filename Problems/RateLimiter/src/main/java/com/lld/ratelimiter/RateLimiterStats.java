@@ -0,0 +1,187 @@
+package com.lld.ratelimiter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// A throttled key and its estimated drop count, scaled up from sampled drops. Before
+// scaling the sketch's bound holds: the sampled count is in [count - error, count].
+record KeyCount(String key, long count, long error) {
+}
+
+// Immutable point-in-time view of RateLimiterMetrics. Latencies are in nanoseconds
+// and come from a sampled histogram (bucket upper bounds, <= 12.5% relative error).
+record RateLimiterStats(long totalRequests, long droppedRequests, List<KeyCount> topThrottled,
+        long sampledLatencies, long p50Nanos, long p99Nanos, long p999Nanos, long maxNanos) {
+
+    public double dropRate() {
+        return totalRequests == 0 ? 0.0 : (double) droppedRequests / totalRequests;
+    }
+}
+
+// --- Space-Saving top-K sketch ---
+// Keeps at most k counters. An unseen key replaces the smallest counter and
+// inherits its count as `error`, so a key that truly has more than N/k drops
+// is guaranteed to be present. Striped by key hash: a given key always lands in
+// the same stripe, so stripes never double count and contention is spread out.
+// Each stripe is k parallel arrays scanned linearly (k is small): the drop path
+// never allocates, even when a long tail of keys keeps replacing counters.
+// The abusive key it exists to catch always lands in one stripe, so the drop path
+// must never queue on it: only 1 in `sampleRate` offers touches the sketch, and that
+// one uses tryLock and skips the sample if another thread holds the stripe. Counts
+// are scaled back up by the sample rate when read.
+class TopKSketch {
+    private static final class Stripe {
+        final ReentrantLock lock = new ReentrantLock();
+        final String[] keys;
+        final int[] hashes;
+        final long[] counts;
+        final long[] errors;
+        int size;
+
+        Stripe(int k) {
+            keys = new String[k];
+            hashes = new int[k];
+            counts = new long[k];
+            errors = new long[k];
+        }
+    }
+
+    private final int k;
+    private final int sampleRate;
+    private final Stripe[] stripes;
+
+    public TopKSketch(int k, int sampleRate) {
+        if (sampleRate < 1)
+            throw new IllegalArgumentException("sampleRate must be at least 1");
+        int n = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2 - 1);
+        this.k = k;
+        this.sampleRate = sampleRate;
+        this.stripes = new Stripe[n];
+        for (int i = 0; i < n; i++) {
+            stripes[i] = new Stripe(k);
+        }
+    }
+
+    // Never blocks
+    public void offer(String key) {
+        if (sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0)
+            return;
+        int h = key.hashCode();
+        Stripe stripe = stripes[(h ^ (h >>> 16)) & (stripes.length - 1)];
+        if (!stripe.lock.tryLock())
+            return; // Contended: drop this sample rather than wait
+        try {
+            int min = 0;
+            for (int i = 0; i < stripe.size; i++) {
+                if (stripe.hashes[i] == h && stripe.keys[i].equals(key)) {
+                    stripe.counts[i]++;
+                    return;
+                }
+                if (stripe.counts[i] < stripe.counts[min])
+                    min = i;
+            }
+            if (stripe.size < k) {
+                int i = stripe.size++;
+                stripe.keys[i] = key;
+                stripe.hashes[i] = h;
+                stripe.counts[i] = 1;
+                stripe.errors[i] = 0;
+            } else {
+                stripe.keys[min] = key; // Evict the smallest counter; its count becomes our error bound
+                stripe.hashes[min] = h;
+                stripe.errors[min] = stripe.counts[min];
+                stripe.counts[min]++;
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    public List<KeyCount> top() {
+        List<KeyCount> all = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                for (int i = 0; i < stripe.size; i++) {
+                    all.add(new KeyCount(stripe.keys[i], stripe.counts[i] * sampleRate,
+                            stripe.errors[i] * sampleRate));
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        all.sort((a, b) -> Long.compare(b.count(), a.count()));
+        return List.copyOf(all.subList(0, Math.min(k, all.size())));
+    }
+}
+
+// --- Log-linear latency histogram ---
+// 8 linear sub-buckets per power of two (HdrHistogram-style, 3 significant bits):
+// fixed 488 buckets cover 0 .. 2^63 ns with <= 12.5% error. Recording is a couple of
+// shifts plus a LongAdder increment - no locks, no allocation.
+class LatencyHistogram {
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (63 - SUB_BITS + 1) * SUB_BUCKETS;
+
+    private final LongAdder[] counts = new LongAdder[BUCKETS];
+    private final LongAccumulator max = new LongAccumulator(Long::max, 0);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        long v = Math.max(0, nanos);
+        counts[indexOf(v)].increment();
+        max.accumulate(v);
+    }
+
+    static int indexOf(long v) {
+        if (v < SUB_BUCKETS)
+            return (int) v;
+        int exp = 63 - Long.numberOfLeadingZeros(v);
+        int sub = (int) (v >>> (exp - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exp - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    static long lowerBound(int index) {
+        if (index < SUB_BUCKETS)
+            return index;
+        int exp = index / SUB_BUCKETS + SUB_BITS - 1;
+        return (long) (SUB_BUCKETS + index % SUB_BUCKETS) << (exp - SUB_BITS);
+    }
+
+    // Fills out[i] with the value at percentiles[i] (0..100); returns the sample count
+    public long percentiles(double[] percentiles, long[] out) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts[i].sum();
+            total += snapshot[i];
+        }
+        for (int p = 0; p < percentiles.length; p++) {
+            long rank = (long) Math.ceil(total * percentiles[p] / 100.0);
+            long seen = 0;
+            out[p] = 0;
+            for (int i = 0; i < BUCKETS && total > 0; i++) {
+                seen += snapshot[i];
+                if (seen >= rank && snapshot[i] > 0) {
+                    out[p] = i + 1 < BUCKETS ? lowerBound(i + 1) - 1 : Long.MAX_VALUE;
+                    break;
+                }
+            }
+        }
+        return total;
+    }
+
+    public long max() {
+        return max.get();
+    }
+}
@@ -2,89 +2,481 @@ package com.lld.ratelimiter;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+// --- Public API ---
+interface RateLimiter {
+    boolean allowRequest(String userId);
+}
 
 // --- Token Bucket Implementation ---
-class TokenBucket {
-    private final long capacity;
-    private final double refillRate; // Tokens per second
+// SDE-3 Focus: Lock-Free Refill + Consume
+// The whole bucket state is ONE AtomicLong: the virtual instant (Ticker nanos)
+// at which the bucket was last empty. Tokens and the last-refill time are both
+// derived from it:
+//   tokens(now) = min(capacity, (now - emptyAt) / nanosPerToken)
+// Consuming a token advances emptyAt by nanosPerToken; refill is just time passing.
+// All math is integer nanoseconds - a fixed-point token count with a resolution of
+// 1/nanosPerToken - so there is no double rounding and no clock read under a lock.
+// A rejected request never writes, so a hot, throttled key costs one volatile read.
+// Capacity and ticker come from the rule every key of it shares.
+class TokenBucket implements RateLimitAlgorithm {
+    private static final long RETIRED = Long.MIN_VALUE; // Reclaimed by the idle sweeper
 
-    private double tokens;
-    private long lastRefillTimestamp;
+    private final RateLimitRule rule;
+    private final long nanosPerToken;
+
+    private final AtomicLong emptyAt;
 
     public TokenBucket(long capacity, double refillRate) {
-        this.capacity = capacity;
-        this.refillRate = refillRate;
-        this.tokens = capacity;
-        this.lastRefillTimestamp = System.currentTimeMillis();
+        this(capacity, refillRate, Ticker.system());
     }
 
-    // SDE-3 Focus: Synchronized Refill + Consume
-    // Lazy Refill: We only update tokens when a request arrives.
-    public synchronized boolean tryConsume() {
-        refill();
+    public TokenBucket(long capacity, double refillRate, Ticker ticker) {
+        this(legacyRule(capacity, refillRate, ticker), Math.max(1, Math.round(1_000_000_000.0 / refillRate)));
+    }
 
-        if (tokens >= 1) {
-            tokens -= 1;
-            return true;
+    public TokenBucket(RateLimitRule rule) {
+        this(rule, Math.max(1, Math.round((double) rule.windowNanos() / rule.limit())));
+    }
+
+    private TokenBucket(RateLimitRule rule, long nanosPerToken) {
+        this.rule = rule;
+        this.nanosPerToken = nanosPerToken;
+        this.emptyAt = new AtomicLong(rule.ticker().read() - fullRefillNanos()); // Starts full
+    }
+
+    // (capacity, tokens/sec) as a rule whose window is exactly capacity * nanosPerToken
+    private static RateLimitRule legacyRule(long capacity, double refillRate, Ticker ticker) {
+        if (capacity <= 0 || capacity > Integer.MAX_VALUE || !(refillRate > 0))
+            throw new IllegalArgumentException("capacity and refillRate must be positive");
+        long nanosPerToken = Math.max(1, Math.round(1_000_000_000.0 / refillRate));
+        return new RateLimitRule(AlgorithmType.TOKEN_BUCKET, (int) capacity,
+                Math.multiplyExact(capacity, nanosPerToken), TimeUnit.NANOSECONDS, ticker);
+    }
+
+    // Time to refill from empty; limit <= Integer.MAX_VALUE, so this fits in a long
+    private long fullRefillNanos() {
+        return rule.limit() * nanosPerToken;
+    }
+
+    // Lazy Refill: tokens accrue implicitly; we only CAS when a request arrives.
+    // Weighted: `permits` tokens are taken all-or-nothing in one CAS.
+    @Override
+    public boolean tryConsume(long permits) {
+        if (permits <= 0)
+            throw new IllegalArgumentException("permits must be positive");
+        if (permits > rule.limit())
+            return false; // Can never fit, even in a full bucket
+        long cost = permits * nanosPerToken; // <= fullRefillNanos(), cannot overflow
+        while (true) {
+            long now = rule.ticker().read();
+            long current = emptyAt.get();
+            if (current == RETIRED)
+                return false; // Caller re-resolves the key to a fresh bucket
+            long base = Math.max(current, now - fullRefillNanos()); // Cap credit at a full bucket
+            long next = base + cost;
+            if (next > now)
+                return false; // Fewer than `permits` whole tokens available
+            if (emptyAt.compareAndSet(current, next))
+                return true;
+            // Lost the race to another thread: re-read and retry
         }
-        return false;
     }
 
-    private void refill() {
-        long now = System.currentTimeMillis();
-        long durationMs = now - lastRefillTimestamp;
-        double tokensToAdd = (durationMs / 1000.0) * refillRate;
+    // Partial grant: takes whatever whole tokens are available, up to maxPermits.
+    // Used by the cluster coordinator to lease chunks. Returns the number taken.
+    public long tryConsumeUpTo(long maxPermits) {
+        while (true) {
+            long now = rule.ticker().read();
+            long current = emptyAt.get();
+            if (current == RETIRED)
+                return 0;
+            long base = Math.max(current, now - fullRefillNanos());
+            long take = Math.min(maxPermits, (now - base) / nanosPerToken);
+            if (take <= 0)
+                return 0;
+            if (emptyAt.compareAndSet(current, base + take * nanosPerToken))
+                return take;
+        }
+    }
 
-        if (tokensToAdd > 0) {
-            tokens = Math.min(capacity, tokens + tokensToAdd);
-            lastRefillTimestamp = now;
+    @Override
+    public void refund(long permits) {
+        long credit = Math.min(permits, rule.limit()) * nanosPerToken;
+        while (true) {
+            long current = emptyAt.get();
+            // Moving emptyAt past `now - fullRefillNanos()` is harmless: tryConsume caps at full
+            if (current == RETIRED || emptyAt.compareAndSet(current, current - credit))
+                return;
         }
     }
+
+    // With emptyAt as the state, the wait is exact: when base + cost stops exceeding now
+    @Override
+    public long nanosUntilAvailable(long permits) {
+        if (permits > rule.limit())
+            return Long.MAX_VALUE;
+        long current = emptyAt.get();
+        if (current == RETIRED)
+            return 0;
+        long now = rule.ticker().read();
+        long base = Math.max(current, now - fullRefillNanos());
+        return Math.max(0, base + permits * nanosPerToken - now);
+    }
+
+    // Idle == completely full, i.e. indistinguishable from a brand-new bucket
+    @Override
+    public boolean tryRetireIfIdle() {
+        long current = emptyAt.get();
+        return current != RETIRED
+                && rule.ticker().read() - current >= fullRefillNanos()
+                && emptyAt.compareAndSet(current, RETIRED);
+    }
+
+    @Override
+    public boolean isRetired() {
+        return emptyAt.get() == RETIRED;
+    }
+
+    public long availableTokens() {
+        long elapsed = rule.ticker().read() - emptyAt.get();
+        return Math.min(rule.limit(), Math.max(0, elapsed / nanosPerToken));
+    }
 }
 
 // --- Metrics Instrumentation (SDE-3 Enhancement) ---
+// Striped LongAdder counters (no shared CAS hotspot on the request path), a
+// space-saving sketch of the most-throttled keys, and a sampled latency histogram.
+// Latency is timed for ~1 in LATENCY_SAMPLE_RATE calls: percentiles stay unbiased
+// while most calls skip both nanoTime() reads.
 class RateLimiterMetrics {
-    private final java.util.concurrent.atomic.AtomicLong totalRequests = new java.util.concurrent.atomic.AtomicLong(0);
-    private final java.util.concurrent.atomic.AtomicLong droppedRequests = new java.util.concurrent.atomic.AtomicLong(
-            0);
+    static final long NOT_SAMPLED = Long.MIN_VALUE;
+    private static final int LATENCY_SAMPLE_RATE = 16;
+    private static final int TOP_K = 10;
+    private static final int DROP_SAMPLE_RATE = 16; // Top-K sees 1 in 16 drops
+
+    private final LongAdder totalRequests = new LongAdder();
+    private final LongAdder droppedRequests = new LongAdder();
+    private final TopKSketch topThrottled = new TopKSketch(TOP_K, DROP_SAMPLE_RATE);
+    private final LatencyHistogram latency = new LatencyHistogram();
 
     public void incrementTotal() {
-        totalRequests.incrementAndGet();
+        totalRequests.increment();
     }
 
     public void incrementDropped() {
-        droppedRequests.incrementAndGet();
+        droppedRequests.increment();
+    }
+
+    // Batched callers publish once per batch instead of once per request
+    public void add(long total, long dropped) {
+        totalRequests.add(total);
+        if (dropped > 0)
+            droppedRequests.add(dropped);
+    }
+
+    // Start of an allowRequest(); pass the result to record()
+    public long startTimer() {
+        return ThreadLocalRandom.current().nextInt(LATENCY_SAMPLE_RATE) == 0 ? System.nanoTime() : NOT_SAMPLED;
+    }
+
+    public void record(String key, boolean allowed, long startedAt) {
+        if (startedAt != NOT_SAMPLED)
+            latency.record(System.nanoTime() - startedAt);
+        totalRequests.increment();
+        if (!allowed)
+            recordDropped(key);
+    }
+
+    // A drop counted in bulk via add(): only feeds the top-K sketch
+    public void recordThrottledKey(String key) {
+        topThrottled.offer(key);
+    }
+
+    private void recordDropped(String key) {
+        droppedRequests.increment();
+        topThrottled.offer(key);
+    }
+
+    public RateLimiterStats snapshot() {
+        long[] p = new long[3];
+        long samples = latency.percentiles(new double[] { 50, 99, 99.9 }, p);
+        return new RateLimiterStats(totalRequests.sum(), droppedRequests.sum(), topThrottled.top(),
+                samples, p[0], p[1], p[2], latency.max());
     }
 
     public void printStats() {
-        System.out.println("[Metrics] Total: " + totalRequests.get() + ", Dropped: " + droppedRequests.get());
+        RateLimiterStats stats = snapshot();
+        System.out.println("[Metrics] Total: " + stats.totalRequests() + ", Dropped: " + stats.droppedRequests()
+                + ", p99: " + stats.p99Nanos() + "ns, Top throttled: " + stats.topThrottled());
     }
 }
 
+// What to do with a key first seen once maxTrackedKeys buckets already exist
+enum OverflowPolicy {
+    REJECT,        // Fail closed: untracked keys are throttled
+    ALLOW,         // Fail open: untracked keys pass unchecked
+    SHARED_BUCKET  // All untracked keys share one limiter state
+}
+
 // --- Service ---
-class RateLimiterService {
-    private final Map<String, TokenBucket> userBuckets;
-    private final int capacity;
-    private final double refillRate;
+// One service per rule (endpoint class); the rule picks the algorithm for every key.
+class RateLimiterService implements RateLimiter {
+    private final ConcurrentHashMap<String, RateLimitAlgorithm> userBuckets;
+    private final RateLimitRule rule;
     private final RateLimiterMetrics metrics;
 
+    // Memory bound
+    private final int maxTrackedKeys;
+    private final OverflowPolicy overflowPolicy;
+    private final RateLimitAlgorithm overflowBucket;
+    private final AtomicInteger trackedKeys = new AtomicInteger();
+    private final Function<String, RateLimitAlgorithm> bucketFactory = this::newBucketIfRoom;
+    private volatile ScheduledExecutorService sweeper;
+    private volatile PermitWaiters waiters; // Created on first acquire()
+
     public RateLimiterService(int capacity, double refillRate) {
+        this(capacity, refillRate, Integer.MAX_VALUE, OverflowPolicy.REJECT);
+    }
+
+    public RateLimiterService(int capacity, double refillRate, int maxTrackedKeys, OverflowPolicy overflowPolicy) {
+        this(RateLimitRule.tokenBucket(capacity, refillRate), maxTrackedKeys, overflowPolicy);
+    }
+
+    public RateLimiterService(RateLimitRule rule) {
+        this(rule, Integer.MAX_VALUE, OverflowPolicy.REJECT);
+    }
+
+    public RateLimiterService(RateLimitRule rule, int maxTrackedKeys, OverflowPolicy overflowPolicy) {
+        if (maxTrackedKeys <= 0)
+            throw new IllegalArgumentException("maxTrackedKeys must be positive");
         this.userBuckets = new ConcurrentHashMap<>();
-        this.capacity = capacity;
-        this.refillRate = refillRate;
+        this.rule = rule;
         this.metrics = new RateLimiterMetrics();
+        this.maxTrackedKeys = maxTrackedKeys;
+        this.overflowPolicy = overflowPolicy;
+        this.overflowBucket = RateLimitAlgorithmFactory.create(rule);
     }
 
+    @Override
     public boolean allowRequest(String userId) {
+        return allowRequest(userId, 1);
+    }
+
+    // Weighted request: e.g. a bulk export costing 50 permits. All-or-nothing.
+    public boolean allowRequest(String userId, int permits) {
+        long startedAt = metrics.startTimer();
+        boolean allowed = tryAcquire(userId, permits);
+        metrics.record(userId, allowed, startedAt);
+        return allowed;
+    }
+
+    // Batch API for gateways: checks userIds[i] at costs[i] into out[i] in one pass,
+    // publishing metrics once per batch. Returns how many requests were allowed.
+    public int allowRequests(String[] userIds, int[] costs, boolean[] out) {
+        if (costs.length != userIds.length || out.length < userIds.length)
+            throw new IllegalArgumentException("userIds, costs and out must line up");
+        // Validate the whole batch up front: a bad cost must not leave earlier entries charged
+        for (int cost : costs) {
+            RateLimitAlgorithmFactory.checkPermits(cost);
+        }
+        int allowedCount = 0;
+        for (int i = 0; i < userIds.length; i++) {
+            out[i] = tryAcquire(userIds[i], costs[i]);
+            if (out[i])
+                allowedCount++;
+            else
+                metrics.recordThrottledKey(userIds[i]);
+        }
+        metrics.add(userIds.length, userIds.length - allowedCount);
+        return allowedCount;
+    }
+
+    // Unmetered check, for composites (e.g. HierarchicalRateLimiter) that count on their own
+    boolean tryAcquire(String userId, int permits) {
+        while (true) {
+            // Fast path: existing key, a plain get() - no allocation
+            RateLimitAlgorithm bucket = userBuckets.get(userId);
+            if (bucket == null) {
+                bucket = userBuckets.computeIfAbsent(userId, bucketFactory);
+                if (bucket == null)
+                    return consumeOverflow(permits);
+            }
+            if (bucket.tryConsume(permits))
+                return true;
+            if (!bucket.isRetired())
+                return false;
+            // Raced with the sweeper: help unlink the retired bucket and retry with a fresh one
+            if (userBuckets.remove(userId, bucket))
+                trackedKeys.decrementAndGet();
+        }
+    }
+
+    // Runs inside computeIfAbsent, so at most once per inserted key; null means "over the cap"
+    private RateLimitAlgorithm newBucketIfRoom(String userId) {
+        if (trackedKeys.incrementAndGet() > maxTrackedKeys) {
+            trackedKeys.decrementAndGet();
+            return null;
+        }
+        return RateLimitAlgorithmFactory.create(rule);
+    }
+
+    // --- Waiting acquisition ---
+    // Blocks until the permit is granted, in FIFO order per key. Meant for virtual threads:
+    // the caller parks on a future, it never sleeps or spins.
+    public void acquire(String userId) throws InterruptedException {
+        acquire(userId, 1);
+    }
+
+    public void acquire(String userId, int permits) throws InterruptedException {
+        CompletableFuture<Void> grant = acquireAsync(userId, permits);
+        try {
+            grant.get();
+        } catch (InterruptedException e) {
+            if (!grant.cancel(false) && granted(grant))
+                refund(userId, permits); // Granted just as we were interrupted
+            throw e;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    // Returns false if the permits could not be granted within the timeout
+    public boolean acquire(String userId, int permits, long timeout, TimeUnit unit) throws InterruptedException {
+        CompletableFuture<Void> grant = acquireAsync(userId, permits);
+        try {
+            grant.get(timeout, unit);
+            return true;
+        } catch (TimeoutException e) {
+            return !grant.cancel(false) && granted(grant); // Lost the race with the grant: keep it
+        } catch (InterruptedException e) {
+            if (!grant.cancel(false) && granted(grant))
+                refund(userId, permits);
+            throw e;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    // A future that can't be cancelled may also have been failed by shutdown: no permits then
+    private static boolean granted(CompletableFuture<Void> grant) {
+        return grant.isDone() && !grant.isCompletedExceptionally();
+    }
+
+    public CompletableFuture<Void> acquireAsync(String userId) {
+        return acquireAsync(userId, 1);
+    }
+
+    // Completed by the waiter scheduler once the key's algorithm has refilled enough.
+    // Cancelling the future gives the caller's place (and any granted permits) back.
+    public CompletableFuture<Void> acquireAsync(String userId, int permits) {
+        if (permits <= 0 || permits > rule.limit())
+            throw new IllegalArgumentException("permits must be in 1.." + rule.limit());
         metrics.incrementTotal();
-        userBuckets.putIfAbsent(userId, new TokenBucket(capacity, refillRate));
-        boolean allowed = userBuckets.get(userId).tryConsume();
+        return waiters().acquireAsync(userId, permits);
+    }
 
-        if (!allowed) {
-            metrics.incrementDropped();
+    private PermitWaiters waiters() {
+        PermitWaiters current = waiters;
+        if (current == null) {
+            synchronized (this) {
+                if (waiters == null)
+                    waiters = new PermitWaiters(this);
+                current = waiters;
+            }
         }
-        return allowed;
+        return current;
+    }
+
+    long nanosUntilAvailable(String userId, int permits) {
+        RateLimitAlgorithm bucket = userBuckets.get(userId);
+        if (bucket != null)
+            return bucket.nanosUntilAvailable(permits);
+        switch (overflowPolicy) {
+            case SHARED_BUCKET:
+                return trackedKeys.get() < maxTrackedKeys ? 0 : overflowBucket.nanosUntilAvailable(permits);
+            case ALLOW:
+                return 0;
+            default:
+                return trackedKeys.get() < maxTrackedKeys ? 0 : Long.MAX_VALUE;
+        }
+    }
+
+    // Returns permits from a successful tryAcquire whose overall request was abandoned
+    void refund(String userId, int permits) {
+        RateLimitAlgorithm bucket = userBuckets.get(userId);
+        if (bucket != null) {
+            bucket.refund(permits); // If it was swapped after a retire, the new one is full anyway
+        } else if (overflowPolicy == OverflowPolicy.SHARED_BUCKET) {
+            overflowBucket.refund(permits);
+        }
+    }
+
+    private boolean consumeOverflow(int permits) {
+        switch (overflowPolicy) {
+            case ALLOW:
+                return true;
+            case SHARED_BUCKET:
+                return overflowBucket.tryConsume(permits);
+            default:
+                return false;
+        }
+    }
+
+    // Drops every idle state (fully refilled / empty window) - it is identical to a new one.
+    // Returns the count removed.
+    public int sweepIdleBuckets() {
+        int removed = 0;
+        for (Map.Entry<String, RateLimitAlgorithm> entry : userBuckets.entrySet()) {
+            RateLimitAlgorithm bucket = entry.getValue();
+            if (bucket.tryRetireIfIdle() && userBuckets.remove(entry.getKey(), bucket)) {
+                trackedKeys.decrementAndGet();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    public synchronized void startIdleSweeper(long period, TimeUnit unit) {
+        if (sweeper != null)
+            return;
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "rate-limiter-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweepIdleBuckets, period, period, unit);
+    }
+
+    public synchronized void shutdown() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+            sweeper = null;
+        }
+        if (waiters != null) {
+            waiters.shutdown();
+            waiters = null;
+        }
+    }
+
+    public int trackedKeyCount() {
+        return trackedKeys.get();
+    }
+
+    public RateLimiterStats stats() {
+        return metrics.snapshot();
     }
 
     public void showMetrics() {
@@ -92,6 +484,13 @@ class RateLimiterService {
     }
 }
 
+// Keeps the classic (capacity, refill/sec) entry point for token bucket callers
+class TokenBucketRateLimiter extends RateLimiterService {
+    public TokenBucketRateLimiter(int capacity, double refillRate) {
+        super(capacity, refillRate);
+    }
+}
+
 // --- Demo ---
 public class Solution {
     public static void main(String[] args) throws InterruptedException {
@@ -115,5 +514,15 @@ public class Solution {
 
         // Retry
         System.out.println("Req 5 (Should Pass): " + limiter.allowRequest(user)); // true
+
+        // Same limit, different algorithms: 3 requests / 3s per key
+        for (AlgorithmType type : AlgorithmType.values()) {
+            RateLimiter perRule = new RateLimiterService(new RateLimitRule(type, 3, 3, TimeUnit.SECONDS));
+            StringBuilder results = new StringBuilder();
+            for (int i = 0; i < 4; i++) {
+                results.append(perRule.allowRequest(user)).append(' ');
+            }
+            System.out.println(type + ": " + results.toString().trim()); // true true true false
+        }
     }
 }
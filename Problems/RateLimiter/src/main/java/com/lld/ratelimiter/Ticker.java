@@ -0,0 +1,12 @@
+package com.lld.ratelimiter;
+
+// --- Time Source ---
+// Injected so refill, windows and leases can be tested (and benchmarked) without
+// sleeping or depending on wall-clock jitter.
+interface Ticker {
+    long read(); // Nanoseconds, arbitrary origin
+
+    static Ticker system() {
+        return System::nanoTime;
+    }
+}
@@ -0,0 +1,236 @@
+package com.lld.ratelimiter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// A lease answer: `tokens` granted now (possibly 0) and, when the global bucket
+// is dry, how long the node should wait before asking again.
+record LeaseGrant(long tokens, long retryAfterNanos) {
+}
+
+// --- Token Coordinator ---
+// Owns the single global bucket per key. Nodes lease chunks of tokens from it
+// instead of asking per request.
+interface TokenCoordinator {
+    LeaseGrant lease(String key, long requested);
+}
+
+// --- In-process coordinator (also the server-side logic for the socket transport) ---
+class InProcessCoordinator implements TokenCoordinator {
+    private final RateLimitRule rule;
+    private final ConcurrentHashMap<String, TokenBucket> globalBuckets = new ConcurrentHashMap<>();
+
+    public InProcessCoordinator(RateLimitRule rule) {
+        if (rule.algorithm() != AlgorithmType.TOKEN_BUCKET)
+            throw new IllegalArgumentException("Leasing needs a token bucket rule");
+        this.rule = rule;
+    }
+
+    @Override
+    public LeaseGrant lease(String key, long requested) {
+        while (true) {
+            TokenBucket bucket = globalBuckets.get(key);
+            if (bucket == null)
+                bucket = globalBuckets.computeIfAbsent(key, k -> (TokenBucket) RateLimitAlgorithmFactory.create(rule));
+            long granted = bucket.tryConsumeUpTo(requested);
+            if (granted > 0)
+                return new LeaseGrant(granted, 0);
+            if (!bucket.isRetired())
+                return new LeaseGrant(0, bucket.nanosUntilAvailable(1));
+            globalBuckets.remove(key, bucket); // Raced with the sweeper: retry on a fresh bucket
+        }
+    }
+
+    public int sweepIdleBuckets() {
+        int removed = 0;
+        for (var entry : globalBuckets.entrySet()) {
+            if (entry.getValue().tryRetireIfIdle() && globalBuckets.remove(entry.getKey(), entry.getValue()))
+                removed++;
+        }
+        return removed;
+    }
+}
+
+// --- Loopback/TCP transport ---
+// Wire format per call: request = UTF key + long requested; response = long tokens + long retryAfterNanos.
+// One thread per connection; nodes keep a small pool of connections and renew in the
+// background, so this is off the request path.
+class SocketCoordinatorServer implements Closeable {
+    private final TokenCoordinator delegate;
+    private final ServerSocket serverSocket;
+
+    public SocketCoordinatorServer(TokenCoordinator delegate, int port) throws IOException {
+        this.delegate = delegate;
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::acceptLoop, "coordinator-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread handler = new Thread(() -> serve(socket), "coordinator-conn");
+                handler.setDaemon(true);
+                handler.start();
+            } catch (IOException e) {
+                return; // Server closed
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+                DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            while (true) {
+                String key = in.readUTF();
+                LeaseGrant grant = delegate.lease(key, in.readLong());
+                out.writeLong(grant.tokens());
+                out.writeLong(grant.retryAfterNanos());
+                out.flush();
+            }
+        } catch (IOException e) {
+            // Client disconnected
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+}
+
+// Connect and read timeouts bound every call, so a hung coordinator surfaces as an
+// UncheckedIOException (the limiter then fails closed). Calls are spread over a small
+// pool of connections, one in-flight call each, so the limiter's parallel renewals
+// don't serialize behind a single socket. A failed or timed-out call drops its
+// connection - a late reply can't be mistaken for the next answer - and a later call
+// opens a fresh one.
+class SocketCoordinatorClient implements TokenCoordinator, Closeable {
+    private static final int DEFAULT_TIMEOUT_MILLIS = 1_000;
+    private static final int DEFAULT_MAX_CONNECTIONS = 16;
+
+    private static final class Connection {
+        final Socket socket;
+        final DataInputStream in;
+        final DataOutputStream out;
+
+        Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // Already broken
+            }
+        }
+    }
+
+    private final String host;
+    private final int port;
+    private final int timeoutMillis;
+    private final Semaphore permits; // One per connection, idle or in use
+    private final ConcurrentLinkedQueue<Connection> idle = new ConcurrentLinkedQueue<>();
+    private volatile boolean closed;
+
+    public SocketCoordinatorClient(String host, int port) throws IOException {
+        this(host, port, DEFAULT_TIMEOUT_MILLIS, DEFAULT_MAX_CONNECTIONS);
+    }
+
+    public SocketCoordinatorClient(String host, int port, int timeoutMillis) throws IOException {
+        this(host, port, timeoutMillis, DEFAULT_MAX_CONNECTIONS);
+    }
+
+    public SocketCoordinatorClient(String host, int port, int timeoutMillis, int maxConnections) throws IOException {
+        if (timeoutMillis <= 0 || maxConnections <= 0)
+            throw new IllegalArgumentException("timeoutMillis and maxConnections must be positive");
+        this.host = host;
+        this.port = port;
+        this.timeoutMillis = timeoutMillis;
+        this.permits = new Semaphore(maxConnections);
+        idle.add(connect()); // Fail fast if the coordinator isn't there
+    }
+
+    private Connection connect() throws IOException {
+        Socket s = new Socket();
+        try {
+            s.connect(new InetSocketAddress(host, port), timeoutMillis);
+            s.setSoTimeout(timeoutMillis);
+            s.setTcpNoDelay(true);
+            return new Connection(s);
+        } catch (IOException e) {
+            s.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public LeaseGrant lease(String key, long requested) {
+        try {
+            if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS))
+                throw new UncheckedIOException(new IOException("No coordinator connection free"));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new InterruptedIOException("Interrupted waiting for a connection"));
+        }
+        Connection conn = null;
+        try {
+            if (closed)
+                throw new IOException("Client closed");
+            conn = idle.poll();
+            if (conn == null)
+                conn = connect();
+            conn.out.writeUTF(key);
+            conn.out.writeLong(requested);
+            conn.out.flush();
+            LeaseGrant grant = new LeaseGrant(conn.in.readLong(), conn.in.readLong());
+            release(conn);
+            return grant;
+        } catch (IOException e) {
+            if (conn != null)
+                conn.close();
+            throw new UncheckedIOException(e);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void release(Connection conn) {
+        idle.add(conn);
+        if (closed && idle.remove(conn)) // Raced with close()
+            conn.close();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        Connection conn;
+        while ((conn = idle.poll()) != null) {
+            conn.close();
+        }
+    }
+}
@@ -1,6 +1,22 @@
 package com.lld.ratelimiter;
 
 import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class RateLimiterTest {
@@ -17,4 +33,425 @@ public class RateLimiterTest {
         // Simulate depletion (mocking or just logic flow)
         // For real SDE-3 code, we'd mock the TimeProvider.
     }
+
+    @Test
+    public void testLockFreeBucketNeverOverGrantsUnderContention() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(10_000, 0.001); // Effectively no refill during the test
+        AtomicLong granted = new AtomicLong();
+        Thread[] workers = new Thread[32];
+        for (int t = 0; t < workers.length; t++) {
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < 1_000; i++) {
+                    if (bucket.tryConsume())
+                        granted.incrementAndGet();
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread w : workers) {
+            w.join();
+        }
+        assertEquals(10_000, granted.get(), "Exactly capacity tokens across 32 threads");
+        assertFalse(bucket.tryConsume());
+        assertEquals(0, bucket.availableTokens());
+    }
+
+    @Test
+    public void testIdleBucketsAreReclaimedAndKeyCapHonoured() {
+        long[] now = { 0 };
+        RateLimiterService service = new RateLimiterService(
+                new RateLimitRule(AlgorithmType.TOKEN_BUCKET, 2, 2, TimeUnit.MILLISECONDS, () -> now[0]),
+                2, OverflowPolicy.REJECT); // 2 tokens at 1000/s
+        assertTrue(service.allowRequest("a"));
+        assertTrue(service.allowRequest("b"));
+        assertFalse(service.allowRequest("c"), "Third key is over the cap");
+        assertEquals(2, service.trackedKeyCount());
+        assertEquals(0, service.sweepIdleBuckets(), "Not refilled yet: still in use");
+
+        now[0] += TimeUnit.MILLISECONDS.toNanos(2); // Both buckets back to full
+        assertEquals(2, service.sweepIdleBuckets());
+        assertEquals(0, service.trackedKeyCount());
+        assertTrue(service.allowRequest("c"), "Capacity freed by the sweep");
+
+        TokenBucket bucket = new TokenBucket(1, 0.001);
+        assertTrue(bucket.tryRetireIfIdle());
+        assertFalse(bucket.tryConsume(), "A retired bucket grants nothing");
+    }
+
+    @Test
+    public void testEveryAlgorithmEnforcesTheRuleLimit() {
+        for (AlgorithmType type : AlgorithmType.values()) {
+            RateLimiter limiter = new RateLimiterService(
+                    new RateLimitRule(type, 5, 1, TimeUnit.HOURS));
+            for (int i = 0; i < 5; i++) {
+                assertTrue(limiter.allowRequest("k"), type + " request " + i);
+            }
+            assertFalse(limiter.allowRequest("k"), type + " must reject over the limit");
+            assertTrue(limiter.allowRequest("other"), type + " limits are per key");
+        }
+    }
+
+    @Test
+    public void testWeightedAndBatchedPermits() {
+        for (AlgorithmType type : AlgorithmType.values()) {
+            RateLimitAlgorithm state = RateLimitAlgorithmFactory.create(
+                    new RateLimitRule(type, 100, 1, TimeUnit.HOURS));
+            assertFalse(state.tryConsume(101), type + " cost above the limit never fits");
+            assertTrue(state.tryConsume(50), type.name());
+            assertTrue(state.tryConsume(40), type.name());
+            assertFalse(state.tryConsume(11), type + " all-or-nothing");
+            assertTrue(state.tryConsume(10), type.name());
+            assertFalse(state.tryConsume(), type.name());
+        }
+
+        RateLimiterService service = new RateLimiterService(10, 0.001);
+        String[] users = { "a", "a", "b", "a" };
+        int[] costs = { 6, 5, 10, 4 };
+        boolean[] out = new boolean[users.length];
+        assertEquals(3, service.allowRequests(users, costs, out));
+        assertArrayEquals(new boolean[] { true, false, true, true }, out);
+        assertThrows(IllegalArgumentException.class, () -> service.allowRequest("a", 0));
+
+        // A bad cost anywhere rejects the batch before any entry is charged
+        assertThrows(IllegalArgumentException.class,
+                () -> service.allowRequests(new String[] { "c", "c" }, new int[] { 10, 0 }, new boolean[2]));
+        assertTrue(service.allowRequest("c", 10), "Rejected batch left key c untouched");
+    }
+
+    @Test
+    public void testHierarchicalQuotaRollsBackEarlierLevels() {
+        TimeUnit hour = TimeUnit.HOURS;
+        HierarchicalRateLimiter limiter = new HierarchicalRateLimiter(List.of(
+                new QuotaLevel("user", new RateLimitRule(AlgorithmType.TOKEN_BUCKET, 3, 1, hour), k -> k),
+                new QuotaLevel("tenant", new RateLimitRule(AlgorithmType.GCRA, 4, 1, hour),
+                        k -> k.substring(0, k.indexOf('/'))),
+                new QuotaLevel("global", new RateLimitRule(AlgorithmType.SLIDING_WINDOW_COUNTER, 100, 1, hour),
+                        k -> "*")));
+
+        assertTrue(limiter.allowRequest("acme/alice"));
+        assertTrue(limiter.allowRequest("acme/alice"));
+        assertTrue(limiter.allowRequest("acme/bob"));
+        assertTrue(limiter.allowRequest("acme/bob"));
+        assertEquals("tenant", limiter.rejectingLevel("acme/alice", 1));
+        assertTrue(limiter.allowRequest("globex/alice"), "Other tenants are unaffected");
+
+        // The tenant rejection refunded alice's user-level token: 1 left, not 0
+        HierarchicalRateLimiter userOnly = new HierarchicalRateLimiter(List.of(
+                new QuotaLevel("user", new RateLimitRule(AlgorithmType.TOKEN_BUCKET, 3, 1, hour), k -> k),
+                new QuotaLevel("global", new RateLimitRule(AlgorithmType.SLIDING_LOG, 2, 1, hour), k -> "*")));
+        assertTrue(userOnly.allowRequest("u"));
+        assertTrue(userOnly.allowRequest("u"));
+        assertEquals("global", userOnly.rejectingLevel("u", 1));
+        assertEquals("global", userOnly.rejectingLevel("u", 1), "Still has its refunded user token");
+    }
+
+    @Test
+    public void testAcquireWaitsForRefillInFifoOrder() throws Exception {
+        RateLimiterService service = new RateLimiterService(1, 50.0); // 1 token every 20ms
+        try {
+            service.acquire("k"); // Drains the bucket
+            List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                int id = i;
+                futures.add(service.acquireAsync("k").thenRun(() -> order.add(id)));
+            }
+            long start = System.nanoTime();
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                    .get(5, TimeUnit.SECONDS);
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+            assertEquals(List.of(0, 1, 2, 3, 4), order);
+            assertTrue(elapsedMs >= 70, "Five refills of 20ms can't finish in " + elapsedMs + "ms");
+            assertFalse(service.acquire("k", 1, 1, TimeUnit.MILLISECONDS),
+                    "Times out while the bucket is empty");
+            assertThrows(IllegalArgumentException.class, () -> service.acquireAsync("k", 2));
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    public void testLeasedClusterNeverExceedsGlobalLimit() throws Exception {
+        TimeUnit hour = TimeUnit.HOURS;
+        InProcessCoordinator coordinator = new InProcessCoordinator(
+                new RateLimitRule(AlgorithmType.TOKEN_BUCKET, 100, 1, hour));
+        ClusterRateLimiter[] nodes = new ClusterRateLimiter[3];
+        AtomicLong allowed = new AtomicLong();
+        Thread[] workers = new Thread[nodes.length * 2];
+        for (int n = 0; n < nodes.length; n++) {
+            nodes[n] = new ClusterRateLimiter(coordinator, 10, 1, hour);
+        }
+        for (int t = 0; t < workers.length; t++) {
+            ClusterRateLimiter node = nodes[t % nodes.length];
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < 200; i++) {
+                    if (node.allowRequest("api-key"))
+                        allowed.incrementAndGet();
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread w : workers) {
+            w.join();
+        }
+        assertTrue(allowed.get() <= 100, "Cluster admitted " + allowed.get());
+        assertTrue(allowed.get() >= 100 - nodes.length * 10, "Only unused leases may be lost");
+
+        // Same protocol over a loopback socket
+        try (SocketCoordinatorServer server = new SocketCoordinatorServer(new InProcessCoordinator(
+                new RateLimitRule(AlgorithmType.TOKEN_BUCKET, 5, 1, hour)), 0);
+                SocketCoordinatorClient client = new SocketCoordinatorClient("127.0.0.1", server.port())) {
+            ClusterRateLimiter node = new ClusterRateLimiter(client, 2, 1, hour);
+            int remoteAllowed = 0;
+            for (int i = 0; i < 10; i++) {
+                if (node.allowRequest("k"))
+                    remoteAllowed++;
+            }
+            assertTrue(remoteAllowed >= 3 && remoteAllowed <= 5, "Remote admitted " + remoteAllowed);
+            node.shutdown();
+        }
+        for (ClusterRateLimiter node : nodes) {
+            node.shutdown();
+        }
+    }
+
+    @Test
+    public void testRenewalDoesNotExtendOldLeftovers() throws Exception {
+        long second = 1_000_000_000L;
+        long[] now = {0};
+        InProcessCoordinator coordinator = new InProcessCoordinator(
+                new RateLimitRule(AlgorithmType.TOKEN_BUCKET, 16, 1, TimeUnit.HOURS));
+        ClusterRateLimiter node = new ClusterRateLimiter(coordinator, 8, 10, TimeUnit.SECONDS,
+                () -> now[0]);
+        assertTrue(node.allowRequest("k")); // Grant A: 8 tokens, expires at 10s
+        now[0] = 9 * second;
+        for (int i = 0; i < 5; i++) {
+            assertTrue(node.allowRequest("k")); // A down to 2: background renewal, grant B expires at 19s
+        }
+        for (int i = 0; i < 100 && node.leasedTokens("k") < 10; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(10, node.leasedTokens("k"), "A's 2 leftovers + B's 8");
+
+        now[0] = 15 * second; // A expired on its own clock; B is still valid
+        assertEquals(8, node.leasedTokens("k"));
+        int admitted = 0;
+        while (node.allowRequest("k")) {
+            admitted++;
+        }
+        assertEquals(8, admitted, "Leftovers were not carried past their expiry");
+        assertEquals(0, node.leasedTokens("k"));
+        node.shutdown();
+    }
+
+    @Test
+    public void testClusterFailsClosedWhenCoordinatorHangs() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        TokenCoordinator hung = (key, requested) -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new LeaseGrant(requested, 0);
+        };
+        ClusterRateLimiter node = new ClusterRateLimiter(hung, 10, 1, TimeUnit.HOURS);
+        long start = System.nanoTime();
+        assertFalse(node.allowRequest("a"), "Empty lease + hung coordinator: fail closed");
+        assertFalse(node.allowRequest("b"));
+        assertFalse(node.allowRequest("a"), "Backing off: rejected without waiting");
+        assertTrue(System.nanoTime() - start < 2_000_000_000L, "Callers wait a bounded time");
+        release.countDown();
+        boolean recovered = false;
+        for (int i = 0; i < 100 && !recovered; i++) { // The late grant still lands in the lease
+            recovered = node.allowRequest("a");
+            if (!recovered)
+                Thread.sleep(10);
+        }
+        assertTrue(recovered, "Lease filled once the coordinator answered");
+        node.shutdown();
+
+        // Socket transport: a silent server times out, and the next call reconnects
+        try (ServerSocket silent = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            List<Socket> accepted = new CopyOnWriteArrayList<>();
+            Thread acceptor = new Thread(() -> {
+                try {
+                    while (true) {
+                        accepted.add(silent.accept());
+                    }
+                } catch (IOException e) {
+                    // Closed
+                }
+            });
+            acceptor.setDaemon(true);
+            acceptor.start();
+            SocketCoordinatorClient client = new SocketCoordinatorClient("127.0.0.1", silent.getLocalPort(), 100);
+            assertThrows(UncheckedIOException.class, () -> client.lease("k", 1));
+            assertThrows(UncheckedIOException.class, () -> client.lease("k", 1));
+            for (int i = 0; i < 100 && accepted.size() < 2; i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(2, accepted.size(), "Reconnected after the timeout");
+            client.close();
+        }
+    }
+
+    @Test
+    public void testColdKeysFetchInParallelAgainstASlowCoordinator() throws Exception {
+        InProcessCoordinator backing = new InProcessCoordinator(
+                new RateLimitRule(AlgorithmType.TOKEN_BUCKET, 100, 1, TimeUnit.HOURS));
+        TokenCoordinator slow = (key, requested) -> {
+            try {
+                Thread.sleep(20); // Serialized, 32 keys would take 640 ms - far past the caller's wait
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return backing.lease(key, requested);
+        };
+        ClusterRateLimiter node = new ClusterRateLimiter(slow, 10, 1, TimeUnit.HOURS);
+        assertEquals(32, admitColdKeys(node, 32), "No cold key rejected because of queued fetches");
+        node.shutdown();
+
+        // Same over the socket transport: calls spread over pooled connections
+        try (SocketCoordinatorServer server = new SocketCoordinatorServer(slow, 0);
+                SocketCoordinatorClient client = new SocketCoordinatorClient("127.0.0.1", server.port())) {
+            ClusterRateLimiter remote = new ClusterRateLimiter(client, 10, 1, TimeUnit.HOURS);
+            assertEquals(32, admitColdKeys(remote, 32), "Remote fetches did not serialize on one connection");
+            remote.shutdown();
+        }
+    }
+
+    // One request per distinct key, all at once; returns how many were admitted
+    private static int admitColdKeys(ClusterRateLimiter node, int keys) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger admitted = new AtomicInteger();
+        Thread[] callers = new Thread[keys];
+        for (int k = 0; k < keys; k++) {
+            String key = "cold-" + k;
+            callers[k] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (node.allowRequest(key))
+                    admitted.incrementAndGet();
+            });
+            callers[k].start();
+        }
+        start.countDown();
+        for (Thread c : callers) {
+            c.join();
+        }
+        return admitted.get();
+    }
+
+    @Test
+    public void testAdaptiveLimitFollowsBackendHealth() {
+        AdaptiveConcurrencyLimiter aimd = new AdaptiveConcurrencyLimiter(AdaptiveType.AIMD, 10, 1, 100);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(aimd.allowRequest("backend"));
+        }
+        assertFalse(aimd.allowRequest("backend"), "In-flight capped at the limit");
+        aimd.onSuccess(1_000_000); // Fully utilised + healthy: additive increase
+        assertEquals(11, aimd.limit());
+        aimd.onDropped(); // Multiplicative decrease
+        assertEquals(9, aimd.limit());
+        assertEquals(8, aimd.inFlight());
+
+        AdaptiveConcurrencyLimiter gradient = new AdaptiveConcurrencyLimiter(AdaptiveType.GRADIENT, 50, 5, 500);
+        long baseline = 10_000_000;
+        for (int round = 0; round < 50; round++) { // Saturated at baseline latency: probes upward
+            while (gradient.allowRequest("backend")) {
+            }
+            gradient.onSuccess(baseline);
+        }
+        int healthyLimit = gradient.limit();
+        assertTrue(healthyLimit > 50, "Grew to " + healthyLimit);
+        for (int round = 0; round < 50; round++) { // Latency quadruples: queueing, back off
+            while (gradient.allowRequest("backend")) {
+            }
+            gradient.onSuccess(baseline * 4);
+        }
+        assertTrue(gradient.limit() < healthyLimit / 2, "Shrank to " + gradient.limit());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new AdaptiveConcurrencyLimiter(AdaptiveType.AIMD, 200, 1, 100), "Initial limit above maxLimit");
+    }
+
+    @Test
+    public void testGradientLimitRecoversAfterADropAmidHealthySamples() {
+        ConcurrencyLimitStrategy gradient = new GradientLimit(1, 2000);
+        long rtt = 10_000_000;
+        int limit = 1000;
+        for (int i = 0; i < 20; i++) {
+            limit = gradient.update(limit, rtt, limit, false);
+        }
+        int beforeDrop = limit;
+        limit = gradient.update(limit, 0, limit, true);
+        int afterDrop = limit;
+        assertTrue(afterDrop < beforeDrop, "A drop backs off");
+        for (int i = 0; i < 40; i++) { // Same steady latency: the baseline must still match it
+            limit = gradient.update(limit, rtt, limit, false);
+        }
+        assertTrue(limit > beforeDrop, "Recovered to " + limit + " (was " + beforeDrop + ")");
+
+        assertThrows(IllegalArgumentException.class, () -> new GradientLimit(0, 10));
+        assertThrows(IllegalArgumentException.class, () -> new AimdLimit(0, 10, 1));
+    }
+
+    @Test
+    public void testStatsSnapshotFindsTopThrottledKeys() {
+        RateLimiterService service = new RateLimiterService(1, 0.001);
+        for (int i = 0; i < 10_000; i++) {
+            service.allowRequest("abuser");
+            service.allowRequest("user-" + i); // Each fresh key is allowed once
+            if (i % 2 == 0)
+                service.allowRequest("noisy");
+        }
+        RateLimiterStats stats = service.stats();
+        assertEquals(25_000, stats.totalRequests());
+        assertEquals(9_999 + 4_999, stats.droppedRequests());
+        assertEquals("abuser", stats.topThrottled().get(0).key());
+        long abuserDrops = stats.topThrottled().get(0).count(); // Scaled up from 1-in-16 samples
+        assertTrue(abuserDrops > 8_000 && abuserDrops < 12_000, "Estimated " + abuserDrops + " of 9999");
+        assertEquals("noisy", stats.topThrottled().get(1).key());
+        assertTrue(stats.sampledLatencies() > 0 && stats.sampledLatencies() < stats.totalRequests(),
+                "Latency is sampled");
+        assertTrue(stats.p50Nanos() <= stats.p99Nanos() && stats.p99Nanos() <= stats.p999Nanos());
+
+        for (long v : new long[] { 0, 7, 8, 15, 16, 1_000, 123_456_789, Long.MAX_VALUE }) {
+            int index = LatencyHistogram.indexOf(v);
+            assertTrue(LatencyHistogram.lowerBound(index) <= v, "Bucket of " + v);
+            assertTrue(index + 1 == 488 || LatencyHistogram.lowerBound(index + 1) > v, "Bucket of " + v);
+        }
+    }
+
+    @Test
+    public void testRefillIsDeterministicWithInjectedTicker() {
+        long[] now = { 1_000_000_000L };
+        Ticker ticker = () -> now[0];
+        TimeUnit seconds = TimeUnit.SECONDS;
+        for (AlgorithmType type : AlgorithmType.values()) {
+            RateLimiterService service = new RateLimiterService(new RateLimitRule(type, 10, 10, seconds, ticker));
+            for (int i = 0; i < 10; i++) {
+                assertTrue(service.allowRequest("k"), type.name());
+            }
+            assertFalse(service.allowRequest("k"), type.name());
+            now[0] += seconds.toNanos(11); // A full window later everything has refilled
+            for (int i = 0; i < 10; i++) {
+                assertTrue(service.allowRequest("k"), type + " after refill " + i);
+            }
+            assertFalse(service.allowRequest("k"), type.name());
+        }
+
+        TokenBucket bucket = new TokenBucket(2, 1.0, ticker); // 1 token/s
+        assertTrue(bucket.tryConsume(2));
+        now[0] += 999_999_999L;
+        assertFalse(bucket.tryConsume(), "1ns short of a token");
+        assertEquals(1, bucket.nanosUntilAvailable(1));
+        now[0] += 1;
+        assertTrue(bucket.tryConsume());
+    }
 }